@@ -0,0 +1,136 @@
+package de.mobilitystudio.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigReader;
+import org.matsim.core.config.ConfigWriter;
+
+
+/**
+ * Structural deep copy of a {@link Config}, without writing and re-parsing XML.
+ * <p>
+ * Every module is copied into a fresh instance of its own class, so typed modules keep their
+ * comments and behaviour. Parameter sets the fresh instance creates by default are removed
+ * first; then the parameter sets of the original are copied recursively via
+ * {@link ConfigGroup#createParameterSet(String)}, followed by the parameters via
+ * {@link ConfigGroup#addParam(String, String)}, which is the same path the {@code ConfigReader}
+ * uses.
+ * <p>
+ * If a typed group rejects this (e.g. a value that depends on another one that is not set
+ * yet), the group alone is written to XML and read back into a fresh instance, so the copy
+ * still has the original class; callers like the editor's cancel put the copies back into the
+ * config, where {@code config.scoring()} and the like cast them. Only groups without a no-arg
+ * constructor are copied into a generic {@link ConfigGroup}, as the {@code ConfigReader}
+ * cannot create them either.
+ */
+public final class ConfigCloner {
+
+    private ConfigCloner() { }
+
+    /**
+     * Returns a deep copy of the given config, including its context URL.
+     */
+    public static Config copy(Config original) {
+        Config copy = new Config();
+        for (ConfigGroup module : original.getModules().values()) {
+            copy.addModule(copy(module));
+        }
+        copy.setContext(original.getContext());
+        return copy;
+    }
+
+    /**
+     * Returns a deep copy of the given module or parameter set.
+     *
+     * @throws IllegalStateException if a typed group can neither be copied directly nor via XML
+     */
+    public static ConfigGroup copy(ConfigGroup original) {
+        Class<? extends ConfigGroup> type = original.getClass();
+        if (type != ConfigGroup.class) {
+            Constructor<? extends ConfigGroup> constructor;
+            try {
+                constructor = type.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                System.err.println("Warning: " + type.getName() + " has no no-arg constructor, so '"
+                        + original.getName() + "' is copied as a generic config group.");
+                constructor = null;
+            }
+            if (constructor != null) {
+                try {
+                    ConfigGroup copy = newInstance(constructor);
+                    copyInto(original, copy);
+                    return copy;
+                } catch (RuntimeException e) {
+                    System.err.println("Warning: Could not copy " + type.getName() + " directly, copying it via XML. " + e);
+                    return copyViaXml(original, newInstance(constructor));
+                }
+            }
+        }
+        ConfigGroup copy = new ConfigGroup(original.getName());
+        copyInto(original, copy);
+        return copy;
+    }
+
+    private static ConfigGroup newInstance(Constructor<? extends ConfigGroup> constructor) {
+        try {
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /** Writes the group as the only module of a config and reads it back into {@code target}. */
+    private static ConfigGroup copyViaXml(ConfigGroup original, ConfigGroup target) {
+        try {
+            Config source = new Config();
+            source.addModule(original);
+            StringWriter xml = new StringWriter();
+            new ConfigWriter(source).writeStream(xml);
+
+            Config copy = new Config();
+            copy.addModule(target);
+            new ConfigReader(copy).parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+            return target;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not copy the config group '" + original.getName() + "' ("
+                    + original.getClass().getName() + ").", e);
+        }
+    }
+
+    private static void copyInto(ConfigGroup source, ConfigGroup target) {
+        // Remove the sets a fresh instance comes with, e.g. default scoring parameters.
+        for (Collection<? extends ConfigGroup> defaultSets : new ArrayList<>(target.getParameterSets().values())) {
+            for (ConfigGroup defaultSet : new ArrayList<>(defaultSets)) {
+                target.removeParameterSet(defaultSet);
+            }
+        }
+
+        // Sets before params: typed groups may delegate params to one of their sets.
+        for (Map.Entry<String, ? extends Collection<? extends ConfigGroup>> entry : source.getParameterSets().entrySet()) {
+            List<ConfigGroup> sets = new ArrayList<>(entry.getValue());
+            for (ConfigGroup set : sets) {
+                ConfigGroup setCopy = target.getClass() == ConfigGroup.class
+                        ? new ConfigGroup(entry.getKey())
+                        : target.createParameterSet(entry.getKey());
+                copyInto(set, setCopy);
+                target.addParameterSet(setCopy);
+            }
+        }
+
+        for (Map.Entry<String, String> param : source.getParams().entrySet()) {
+            if (param.getValue() != null) {
+                target.addParam(param.getKey(), param.getValue());
+            }
+        }
+    }
+}
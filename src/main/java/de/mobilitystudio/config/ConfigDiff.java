@@ -0,0 +1,312 @@
+package de.mobilitystudio.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.ReplanningConfigGroup.StrategySettings;
+import org.matsim.core.config.groups.RoutingConfigGroup.TeleportedModeParams;
+import org.matsim.core.config.groups.ScoringConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.ScoringConfigGroup.ModeParams;
+import org.matsim.core.config.groups.ScoringConfigGroup.ScoringParameterSet;
+
+
+/**
+ * Structural comparison of MATSim configs: module, then parameter, then parameter sets, where
+ * sets of the same type are matched by their identifier (activity type, mode, strategy name,
+ * subpopulation; see {@link #setIdentifier(ConfigGroup)}).
+ * <p>
+ * {@link #diff(Config, Config)} lists all changes between two configs; {@link #merge(Config,
+ * Config, Config)} combines the changes of two configs that were derived from a common base.
+ * Both only walk the two (or three) trees once, so diffing the hundreds of configs of a
+ * parameter sweep against their base is cheap; {@link #diffAll(Config, List)} does that in
+ * parallel.
+ */
+public final class ConfigDiff {
+
+    public enum Type { ADDED, REMOVED, CHANGED }
+
+    /**
+     * One difference. {@code path} names the module and the enclosing parameter sets, e.g.
+     * {@code scoring/scoringParameters[null]/activityParams[home]}; {@code param} is null if a
+     * whole module or parameter set was added or removed.
+     */
+    public record Change(String path, String param, Type type, String oldValue, String newValue) {
+        @Override
+        public String toString() {
+            if (param == null) return (type == Type.ADDED ? "+ " : "- ") + path;
+            switch (type) {
+                case ADDED: return "+ " + path + ": " + param + " = " + newValue;
+                case REMOVED: return "- " + path + ": " + param + " (was " + oldValue + ")";
+                default: return "~ " + path + ": " + param + " " + oldValue + " -> " + newValue;
+            }
+        }
+    }
+
+    /**
+     * A change that was made differently on both sides of a merge. The merged config keeps
+     * "ours". Values are null where a side does not have the parameter (or set, if
+     * {@code param} is null).
+     */
+    public record Conflict(String path, String param, String base, String ours, String theirs) {
+        @Override
+        public String toString() {
+            return path + (param == null ? "" : ": " + param) + " (base: " + base + ", ours: " + ours + ", theirs: " + theirs + ")";
+        }
+    }
+
+    public record MergeResult(Config merged, List<Conflict> conflicts) { }
+
+    private ConfigDiff() { }
+
+    /**
+     * Returns the identifier of a parameter set, used to match sets of the same type.
+     */
+    public static String setIdentifier(ConfigGroup set) {
+        if (set instanceof ActivityParams) return ((ActivityParams) set).getActivityType();
+        if (set instanceof ModeParams) return ((ModeParams) set).getMode();
+        if (set instanceof StrategySettings) return ((StrategySettings) set).getStrategyName();
+        if (set instanceof TeleportedModeParams) return ((TeleportedModeParams) set).getMode();
+        if (set instanceof ScoringParameterSet) return ((ScoringParameterSet) set).getSubpopulation();
+        return set.getName();
+    }
+
+    /**
+     * Checks if two groups differ in any parameter or (nested) parameter set. Stops at the first
+     * difference.
+     */
+    public static boolean areDifferent(ConfigGroup current, ConfigGroup other) {
+        // 1. Compare simple parameters using Map.equals(), which is robust.
+        if (!current.getParams().equals(other.getParams())) {
+            return true;
+        }
+
+        // 2. Compare the structure of the nested parameter sets.
+        Map<String, ? extends Collection<? extends ConfigGroup>> currentSetsMap = current.getParameterSets();
+        Map<String, ? extends Collection<? extends ConfigGroup>> otherSetsMap = other.getParameterSets();
+
+        // Check if the types of available sets are different (e.g., one has 'activityParams' and the other doesn't).
+        if (!currentSetsMap.keySet().equals(otherSetsMap.keySet())) {
+            return true;
+        }
+
+        // 3. For each type of parameter set (e.g., "strategySettings"), compare the individual sets.
+        for (String setType : currentSetsMap.keySet()) {
+            Collection<? extends ConfigGroup> currentSets = currentSetsMap.get(setType);
+            Collection<? extends ConfigGroup> otherSets = otherSetsMap.get(setType);
+
+            // Check if the number of sets is different (e.g., user added a new strategy).
+            if (currentSets.size() != otherSets.size()) {
+                return true;
+            }
+
+            // Map sets by their unique identifier for direct comparison.
+            Map<String, ConfigGroup> currentChildrenById = setsById(currentSets);
+            Map<String, ConfigGroup> otherChildrenById = setsById(otherSets);
+
+            // Check if the set of identifiers has changed (e.g., one has mode 'car', the other 'truck').
+            if (!currentChildrenById.keySet().equals(otherChildrenById.keySet())) {
+                return true;
+            }
+
+            // 4. If structures match, recursively check each corresponding child pair for changes.
+            for (Map.Entry<String, ConfigGroup> entry : currentChildrenById.entrySet()) {
+                if (areDifferent(entry.getValue(), otherChildrenById.get(entry.getKey()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns all changes from {@code from} to {@code to}, ordered by module, path and parameter.
+     */
+    public static List<Change> diff(Config from, Config to) {
+        List<Change> changes = new ArrayList<>();
+        for (String module : new TreeSet<>(union(from.getModules().keySet(), to.getModules().keySet()))) {
+            diff(module, from.getModules().get(module), to.getModules().get(module), changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Returns all changes from {@code from} to {@code to} within a single module or parameter set.
+     */
+    public static List<Change> diff(ConfigGroup from, ConfigGroup to) {
+        List<Change> changes = new ArrayList<>();
+        diff(from != null ? from.getName() : to.getName(), from, to, changes);
+        return changes;
+    }
+
+    /**
+     * Diffs every variant against the same base config, in parallel. The result has the order of
+     * the variants.
+     */
+    public static List<List<Change>> diffAll(Config base, List<Config> variants) {
+        return variants.parallelStream().map(variant -> diff(base, variant)).collect(Collectors.toList());
+    }
+
+    private static void diff(String path, ConfigGroup from, ConfigGroup to, List<Change> changes) {
+        if (from == null || to == null) {
+            if (from != to) {
+                changes.add(new Change(path, null, from == null ? Type.ADDED : Type.REMOVED, null, null));
+            }
+            return;
+        }
+
+        Map<String, String> fromParams = from.getParams();
+        Map<String, String> toParams = to.getParams();
+        for (String param : new TreeSet<>(union(fromParams.keySet(), toParams.keySet()))) {
+            String oldValue = fromParams.get(param);
+            String newValue = toParams.get(param);
+            if (Objects.equals(oldValue, newValue)) continue;
+            Type type = !fromParams.containsKey(param) ? Type.ADDED : !toParams.containsKey(param) ? Type.REMOVED : Type.CHANGED;
+            changes.add(new Change(path, param, type, oldValue, newValue));
+        }
+
+        Map<String, ? extends Collection<? extends ConfigGroup>> fromSets = from.getParameterSets();
+        Map<String, ? extends Collection<? extends ConfigGroup>> toSets = to.getParameterSets();
+        for (String setType : new TreeSet<>(union(fromSets.keySet(), toSets.keySet()))) {
+            Map<String, ConfigGroup> fromById = setsById(fromSets.get(setType));
+            Map<String, ConfigGroup> toById = setsById(toSets.get(setType));
+            for (String id : union(fromById.keySet(), toById.keySet())) {
+                diff(path + "/" + setPathSegment(setType, id), fromById.get(id), toById.get(id), changes);
+            }
+        }
+    }
+
+    /**
+     * Merges the changes that {@code ours} and {@code theirs} made to {@code base}. Where only one
+     * side changed something, that change is taken; where both changed the same parameter or set
+     * differently, "ours" is kept and a conflict is reported. None of the inputs is modified.
+     */
+    public static MergeResult merge(Config base, Config ours, Config theirs) {
+        Config merged = ConfigCloner.copy(ours);
+        List<Conflict> conflicts = new ArrayList<>();
+        Set<String> modules = new TreeSet<>(union(union(base.getModules().keySet(), ours.getModules().keySet()), theirs.getModules().keySet()));
+        for (String module : modules) {
+            ConfigGroup b = base.getModules().get(module);
+            ConfigGroup o = ours.getModules().get(module);
+            ConfigGroup t = theirs.getModules().get(module);
+            if (o != null && t != null) {
+                mergeGroup(module, b, o, t, merged.getModules().get(module), conflicts);
+            } else if (o != null) {
+                // Removed in theirs (if it was in the base), kept in ours.
+                if (b != null) {
+                    if (areDifferent(o, b)) {
+                        conflicts.add(new Conflict(module, null, "present", "changed", null));
+                    } else {
+                        merged.removeModule(module);
+                    }
+                }
+            } else if (t != null) {
+                if (b == null) {
+                    merged.addModule(ConfigCloner.copy(t));
+                } else if (areDifferent(t, b)) {
+                    conflicts.add(new Conflict(module, null, "present", null, "changed"));
+                }
+            }
+        }
+        return new MergeResult(merged, conflicts);
+    }
+
+    /**
+     * Applies the changes of {@code theirs} to {@code target}, which is a copy of {@code ours}.
+     * {@code base} may be null if both sides added the group independently.
+     */
+    private static void mergeGroup(String path, ConfigGroup base, ConfigGroup ours, ConfigGroup theirs, ConfigGroup target, List<Conflict> conflicts) {
+        Map<String, String> baseParams = base != null ? base.getParams() : Map.of();
+        Map<String, String> ourParams = ours.getParams();
+        Map<String, String> theirParams = theirs.getParams();
+        for (String param : new TreeSet<>(union(union(baseParams.keySet(), ourParams.keySet()), theirParams.keySet()))) {
+            String b = baseParams.get(param);
+            String o = ourParams.get(param);
+            String t = theirParams.get(param);
+            if (Objects.equals(o, t) || Objects.equals(t, b)) continue; // Nothing to take from theirs.
+            if (!Objects.equals(o, b)) {
+                conflicts.add(new Conflict(path, param, b, o, t));
+            } else if (t != null) {
+                target.addParam(param, t);
+            } else {
+                // Typed groups keep their parameters; this only removes parameters of generic groups.
+                target.getParams().remove(param);
+            }
+        }
+
+        Map<String, ? extends Collection<? extends ConfigGroup>> baseSets = base != null ? base.getParameterSets() : Map.of();
+        Map<String, ? extends Collection<? extends ConfigGroup>> ourSets = ours.getParameterSets();
+        Map<String, ? extends Collection<? extends ConfigGroup>> theirSets = theirs.getParameterSets();
+        Map<String, ? extends Collection<? extends ConfigGroup>> targetSets = target.getParameterSets();
+        for (String setType : new TreeSet<>(union(union(baseSets.keySet(), ourSets.keySet()), theirSets.keySet()))) {
+            Map<String, ConfigGroup> baseById = setsById(baseSets.get(setType));
+            Map<String, ConfigGroup> ourById = setsById(ourSets.get(setType));
+            Map<String, ConfigGroup> theirById = setsById(theirSets.get(setType));
+            // The target is a structural copy of ours, so its sets have the same identifiers.
+            Map<String, ConfigGroup> targetById = setsById(targetSets.get(setType));
+
+            for (String id : union(union(baseById.keySet(), ourById.keySet()), theirById.keySet())) {
+                String setPath = path + "/" + setPathSegment(setType, id);
+                ConfigGroup b = baseById.get(id);
+                ConfigGroup o = ourById.get(id);
+                ConfigGroup t = theirById.get(id);
+                if (o != null && targetById.get(id) == null) {
+                    // The copy of ours could not keep the type of this set; leave it as it is.
+                    conflicts.add(new Conflict(setPath, null, b != null ? "present" : null, "present", t != null ? "present" : null));
+                } else if (o != null && t != null) {
+                    mergeGroup(setPath, b, o, t, targetById.get(id), conflicts);
+                } else if (o != null) {
+                    if (b != null) {
+                        if (areDifferent(o, b)) {
+                            conflicts.add(new Conflict(setPath, null, "present", "changed", null));
+                        } else {
+                            target.removeParameterSet(targetById.get(id));
+                        }
+                    }
+                } else if (t != null) {
+                    if (b == null) {
+                        target.addParameterSet(ConfigCloner.copy(t));
+                    } else if (areDifferent(t, b)) {
+                        conflicts.add(new Conflict(setPath, null, "present", null, "changed"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the sets of one type by identifier. Sets with the same identifier (e.g. generic sets,
+     * whose identifier is their type) are numbered in their order: {@code id}, {@code id#2}, ...
+     */
+    private static Map<String, ConfigGroup> setsById(Collection<? extends ConfigGroup> sets) {
+        if (sets == null || sets.isEmpty()) return Map.of();
+        Map<String, ConfigGroup> byId = new LinkedHashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (ConfigGroup set : sets) {
+            String id = String.valueOf(setIdentifier(set));
+            int n = occurrences.merge(id, 1, Integer::sum);
+            byId.put(n == 1 ? id : id + "#" + n, set);
+        }
+        return byId;
+    }
+
+    private static String setPathSegment(String setType, String id) {
+        return id.equals(setType) ? setType : setType + "[" + id + "]";
+    }
+
+    private static <T> Set<T> union(Set<T> a, Set<T> b) {
+        Set<T> result = new LinkedHashSet<>(a);
+        result.addAll(b);
+        return result;
+    }
+}
@@ -0,0 +1,196 @@
+package de.mobilitystudio.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.matsim.core.config.ConfigGroup;
+
+
+/**
+ * A BM25 ranking over the parameter documentation of all config groups on the classpath, used to
+ * give the Copilot the few parameter descriptions that are relevant to a question instead of a
+ * fixed primer.
+ * <p>
+ * Every parameter of a default instance of each module found by {@link ConfigGroupIndex}
+ * (including the parameter sets the module creates by default) is one document: its path,
+ * name, default value and {@link ConfigGroup#getComments() comment}. Texts are tokenized like
+ * the config editor search ({@link ConfigSearchIndex#tokenize}), so camel-case parameter names
+ * match their words; the name is counted twice, as it is the best evidence of relevance.
+ * <p>
+ * Instantiating all config groups takes a moment, so the index is built once in the background
+ * by {@link #preload()}; {@link #ifReady()} never blocks. If building fails, it is not retried
+ * in this process and {@link #ifReady()} keeps returning null.
+ */
+public final class ConfigDocIndex {
+
+    /** A ranked parameter: {@code path} is the module and parameter set types, e.g. {@code scoring/scoringParameters}. */
+    public record Hit(String path, String param, String defaultValue, String comment, double score) { }
+
+    private record Doc(String path, String param, String defaultValue, String comment) { }
+
+    // Common BM25 parameters: term frequency saturation and document length normalization.
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by",
+            "can", "do", "does", "for", "from", "how", "if", "in", "is", "it", "my", "not", "of", "on", "or",
+            "set", "should", "that", "the", "this", "to", "used", "what", "when", "which", "why", "will",
+            "with", "you");
+
+    private static volatile ConfigDocIndex instance;
+    private static volatile boolean building;
+    private static volatile boolean failed;
+
+    private final List<Doc> docs;
+    private final Map<String, int[]> postingDocs;   // term -> documents containing it
+    private final Map<String, int[]> postingCounts; // term -> term frequency in these documents
+    private final int[] docLengths;
+    private final double avgDocLength;
+
+    ConfigDocIndex(Collection<ConfigGroup> modules) {
+        Map<String, Doc> unique = new LinkedHashMap<>();
+        for (ConfigGroup module : modules) {
+            collect(module.getName(), module, unique);
+        }
+        this.docs = new ArrayList<>(unique.values());
+        this.docLengths = new int[docs.size()];
+
+        Map<String, List<int[]>> postings = new HashMap<>();
+        long totalLength = 0;
+        for (int d = 0; d < docs.size(); d++) {
+            Doc doc = docs.get(d);
+            List<String> tokens = terms(doc.path() + " " + doc.param() + " " + doc.param() + " " + doc.comment());
+            docLengths[d] = tokens.size();
+            totalLength += tokens.size();
+            Map<String, Integer> tf = new HashMap<>();
+            for (String t : tokens) tf.merge(t, 1, Integer::sum);
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(new int[] { d, e.getValue() });
+            }
+        }
+        this.avgDocLength = docs.isEmpty() ? 1 : (double) totalLength / docs.size();
+        this.postingDocs = new HashMap<>();
+        this.postingCounts = new HashMap<>();
+        for (Map.Entry<String, List<int[]>> e : postings.entrySet()) {
+            int n = e.getValue().size();
+            int[] ids = new int[n];
+            int[] counts = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = e.getValue().get(i)[0];
+                counts[i] = e.getValue().get(i)[1];
+            }
+            postingDocs.put(e.getKey(), ids);
+            postingCounts.put(e.getKey(), counts);
+        }
+    }
+
+    /**
+     * Builds the index from the modules on the classpath in a background thread, unless it is
+     * already built, being built or has failed to build.
+     */
+    public static void preload() {
+        if (instance != null || building || failed) return;
+        synchronized (ConfigDocIndex.class) {
+            if (instance != null || building || failed) return;
+            building = true;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                List<ConfigGroup> modules = new ArrayList<>();
+                for (String name : ConfigGroupIndex.moduleClasses().keySet()) {
+                    ConfigGroup module = ConfigGroupIndex.newInstance(name);
+                    if (module != null) modules.add(module);
+                }
+                instance = new ConfigDocIndex(modules);
+            } catch (RuntimeException | LinkageError e) {
+                // The same classpath would fail the same way; do not scan it on every question.
+                failed = true;
+                System.err.println("Warning: Could not build the config documentation index. " + e.getMessage());
+            } finally {
+                building = false;
+            }
+        }, "config-doc-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Returns the index if it has been built, otherwise starts building it (unless that failed
+     * before) and returns null.
+     */
+    public static ConfigDocIndex ifReady() {
+        ConfigDocIndex index = instance;
+        if (index == null) preload();
+        return index;
+    }
+
+    /**
+     * Returns the {@code k} parameters that match the query best, best first. Every query term
+     * counts once, so a log that repeats a message many times does not drown the rest.
+     */
+    public List<Hit> search(String query, int k) {
+        Set<String> queryTerms = new LinkedHashSet<>(terms(query));
+        if (queryTerms.isEmpty() || docs.isEmpty() || k <= 0) return Collections.emptyList();
+        double[] scores = new double[docs.size()];
+        Set<Integer> matched = new HashSet<>();
+        for (String term : queryTerms) {
+            int[] ids = postingDocs.get(term);
+            if (ids == null) continue;
+            int[] counts = postingCounts.get(term);
+            double idf = Math.log(1 + (docs.size() - ids.length + 0.5) / (ids.length + 0.5));
+            for (int i = 0; i < ids.length; i++) {
+                int d = ids[i];
+                double tf = counts[i];
+                double norm = K1 * (1 - B + B * docLengths[d] / avgDocLength);
+                scores[d] += idf * tf * (K1 + 1) / (tf + norm);
+                matched.add(d);
+            }
+        }
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Double.compare(scores[a], scores[b]));
+        for (int d : matched) {
+            top.add(d);
+            if (top.size() > k) top.poll();
+        }
+        List<Hit> hits = new ArrayList<>();
+        while (!top.isEmpty()) {
+            int d = top.poll();
+            Doc doc = docs.get(d);
+            hits.add(new Hit(doc.path(), doc.param(), doc.defaultValue(), doc.comment(), scores[d]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private static void collect(String path, ConfigGroup group, Map<String, Doc> docs) {
+        Map<String, String> comments = group.getComments();
+        for (Map.Entry<String, String> param : group.getParams().entrySet()) {
+            String comment = comments.get(param.getKey());
+            // Parameter sets of the same type (e.g. several activityParams) share the docs.
+            docs.putIfAbsent(path + "/" + param.getKey(), new Doc(path, param.getKey(),
+                    param.getValue(), comment == null ? "" : comment.strip()));
+        }
+        for (Map.Entry<String, ? extends Collection<? extends ConfigGroup>> sets : group.getParameterSets().entrySet()) {
+            for (ConfigGroup set : sets.getValue()) {
+                collect(path + "/" + sets.getKey(), set, docs);
+            }
+        }
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : ConfigSearchIndex.tokenize(text)) {
+            if (token.length() < 2 || STOP_WORDS.contains(token) || token.chars().allMatch(Character::isDigit)) continue;
+            terms.add(token);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,222 @@
+package de.mobilitystudio.config;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.matsim.core.config.ConfigGroup;
+import org.reflections.Reflections;
+import org.reflections.scanners.Scanners;
+
+
+/**
+ * An index of all concrete {@link ConfigGroup} classes on the classpath, keyed by module name.
+ * <p>
+ * Scanning the fat jar with Reflections and instantiating every group takes several seconds,
+ * so the index is looked up in this order:
+ * <ol>
+ *   <li>the {@value #RESOURCE} resource, written at build time by {@link #main(String[])}
+ *       (bound to the {@code process-classes} phase in the pom),</li>
+ *   <li>a cache file in {@code ~/.matsim/config-group-index/}, keyed by a fingerprint of the
+ *       classpath jars (path, size and modification time),</li>
+ *   <li>a Reflections scan, whose result is written to that cache file.</li>
+ * </ol>
+ * {@link #preload()} starts the lookup in the background so that it is usually done by the
+ * time the user opens the "Add Module" dialog.
+ */
+public final class ConfigGroupIndex {
+
+    static final String RESOURCE = "configGroups.index";
+
+    private static final Path CACHE_DIR = Path.of(System.getProperty("user.home"), ".matsim", "config-group-index");
+
+    /** Classes in this package win over contrib classes with the same module name. */
+    private static final String CORE_PACKAGE = "org.matsim.core.";
+
+    private static volatile Map<String, Class<? extends ConfigGroup>> index;
+
+    private ConfigGroupIndex() { }
+
+    /**
+     * Writes the index resource into the given class output directory. Called by the build.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: ConfigGroupIndex <classes output directory>");
+        }
+        Path target = Path.of(args[0], ConfigGroupIndex.class.getPackageName().replace('.', '/'), RESOURCE);
+        Files.createDirectories(target.getParent());
+        Map<String, String> scanned = scan();
+        write(target, scanned);
+        System.out.println("Wrote " + scanned.size() + " config groups to " + target);
+    }
+
+    /**
+     * Starts building the index in a background thread, unless it is already available.
+     */
+    public static void preload() {
+        if (index != null) return;
+        Thread t = new Thread(ConfigGroupIndex::moduleClasses, "config-group-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Returns all concrete, instantiable config group classes by module name. Blocks on the first
+     * call if the index has to be built by scanning the classpath.
+     */
+    public static Map<String, Class<? extends ConfigGroup>> moduleClasses() {
+        Map<String, Class<? extends ConfigGroup>> result = index;
+        if (result == null) {
+            synchronized (ConfigGroupIndex.class) {
+                result = index;
+                if (result == null) {
+                    result = Collections.unmodifiableMap(load());
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a fresh instance of the config group with the given module name, or returns null
+     * if the module is unknown or cannot be instantiated.
+     */
+    public static ConfigGroup newInstance(String moduleName) {
+        Class<? extends ConfigGroup> moduleClass = moduleClasses().get(moduleName);
+        if (moduleClass == null) return null;
+        try {
+            return moduleClass.getDeclaredConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Map<String, Class<? extends ConfigGroup>> load() {
+        try (InputStream in = ConfigGroupIndex.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return resolve(read(in));
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read the bundled config group index. " + e.getMessage());
+        }
+
+        // v2: duplicate module names are resolved deterministically, see scan().
+        Path cacheFile = CACHE_DIR.resolve("index-v2-" + classpathFingerprint() + ".txt");
+        if (Files.isRegularFile(cacheFile)) {
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                return resolve(read(in));
+            } catch (IOException e) {
+                System.err.println("Warning: Could not read the cached config group index. " + e.getMessage());
+            }
+        }
+
+        Map<String, String> scanned = scan();
+        try {
+            Files.createDirectories(CACHE_DIR);
+            Path tmp = Files.createTempFile(CACHE_DIR, "index-", ".tmp");
+            write(tmp, scanned);
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not cache the config group index. " + e.getMessage());
+        }
+        return resolve(scanned);
+    }
+
+    /**
+     * Scans the classpath for config group classes and instantiates each of them once to get
+     * its module name. Returns module name to class name. If several classes have the same
+     * module name, the MATSim core class wins, otherwise the first by class name, so that the
+     * result does not depend on the scan order.
+     */
+    private static Map<String, String> scan() {
+        Map<String, String> result = new TreeMap<>();
+        Reflections reflections = new Reflections("org.matsim.contrib", "ch.sbb.matsim", "org.matsim.core.config.groups", Scanners.SubTypes);
+        List<Class<? extends ConfigGroup>> moduleClasses = new ArrayList<>(reflections.getSubTypesOf(ConfigGroup.class));
+        moduleClasses.sort(Comparator.comparing((Class<? extends ConfigGroup> c) -> !c.getName().startsWith(CORE_PACKAGE))
+                .thenComparing(Class::getName));
+        for (Class<? extends ConfigGroup> moduleClass : moduleClasses) {
+            if (java.lang.reflect.Modifier.isAbstract(moduleClass.getModifiers())) {
+                continue;
+            }
+            try {
+                ConfigGroup instance = moduleClass.getDeclaredConstructor().newInstance();
+                String existing = result.putIfAbsent(instance.getName(), moduleClass.getName());
+                if (existing != null) {
+                    System.err.println("Warning: Module '" + instance.getName() + "' is defined by " + existing
+                            + " and " + moduleClass.getName() + "; using " + existing + ".");
+                }
+            } catch (Exception | LinkageError e) {
+                // Silently ignore modules that cannot be instantiated.
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Class<? extends ConfigGroup>> resolve(Map<String, String> classNames) {
+        Map<String, Class<? extends ConfigGroup>> result = new TreeMap<>();
+        ClassLoader loader = ConfigGroupIndex.class.getClassLoader();
+        for (Map.Entry<String, String> entry : classNames.entrySet()) {
+            try {
+                Class<?> c = Class.forName(entry.getValue(), false, loader);
+                if (ConfigGroup.class.isAssignableFrom(c)) {
+                    result.put(entry.getKey(), c.asSubclass(ConfigGroup.class));
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                // The index was built against a different classpath; skip the entry.
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, String> read(InputStream in) throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int tab = line.indexOf('\t');
+            if (line.startsWith("#") || tab <= 0) continue;
+            result.put(line.substring(0, tab), line.substring(tab + 1).trim());
+        }
+        return result;
+    }
+
+    private static void write(Path file, Map<String, String> classNames) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# module name <TAB> config group class");
+            writer.newLine();
+            for (Map.Entry<String, String> entry : classNames.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * A cheap fingerprint of the classpath: path, size and modification time of every entry.
+     * Reading the contents of a several hundred MB fat jar would cost more than it saves.
+     */
+    private static String classpathFingerprint() {
+        CRC32 crc = new CRC32();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            File f = new File(entry);
+            crc.update((f.getAbsolutePath() + "|" + f.length() + "|" + f.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return Long.toHexString(crc.getValue());
+    }
+}
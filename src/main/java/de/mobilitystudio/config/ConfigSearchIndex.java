@@ -0,0 +1,190 @@
+package de.mobilitystudio.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+
+
+/**
+ * An in-memory inverted index over the module names, parameter set types, parameter names,
+ * values and comments of a {@link Config}, used by the search box of the config editor.
+ * <p>
+ * Texts are split into lower-case tokens at non-alphanumeric characters and camel-case
+ * boundaries ({@code flowCapacityFactor} is found by {@code flow}, {@code capacity} and
+ * {@code flowcapacityfactor}). Tokens are kept in a sorted map, so each query token is looked up
+ * as a prefix; a hit must match all query tokens. The index is kept per module, so an edit only
+ * re-indexes the affected module.
+ */
+final class ConfigSearchIndex {
+
+    /**
+     * A search hit: a parameter ({@code param != null}) or a parameter set / module itself.
+     */
+    record Hit(String module, ConfigGroup group, String param) { }
+
+    private final TreeMap<String, Set<Hit>> postings = new TreeMap<>();
+    // Tokens added per module, to remove them again when the module is re-indexed.
+    private final Map<String, Map<String, List<Hit>>> tokensByModule = new HashMap<>();
+    // The module instances that have been indexed, to notice modules replaced by a new instance.
+    private final Map<String, ConfigGroup> indexedModules = new HashMap<>();
+
+    /**
+     * Indexes new or replaced modules of the given config and removes modules that no longer exist.
+     * Modules that are still the same instance are not re-indexed; use {@link #update} for those.
+     */
+    void sync(Config config) {
+        for (String moduleName : new ArrayList<>(indexedModules.keySet())) {
+            if (!config.getModules().containsKey(moduleName)) {
+                remove(moduleName);
+            }
+        }
+        for (Map.Entry<String, ConfigGroup> entry : config.getModules().entrySet()) {
+            if (indexedModules.get(entry.getKey()) != entry.getValue()) {
+                update(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * (Re-)indexes a single module, e.g. after one of its parameters has been edited.
+     */
+    void update(String moduleName, ConfigGroup module) {
+        remove(moduleName);
+        if (module == null) return;
+        Map<String, List<Hit>> moduleTokens = new HashMap<>();
+        indexGroup(moduleName, module, moduleTokens);
+        for (Map.Entry<String, List<Hit>> entry : moduleTokens.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        tokensByModule.put(moduleName, moduleTokens);
+        indexedModules.put(moduleName, module);
+    }
+
+    void clear() {
+        postings.clear();
+        tokensByModule.clear();
+        indexedModules.clear();
+    }
+
+    /**
+     * Returns all hits that match every token of the query, in a stable order (module, then the
+     * order of the parameters within the module). An empty query returns no hits.
+     */
+    List<Hit> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) return Collections.emptyList();
+
+        Set<Hit> result = null;
+        for (String token : queryTokens) {
+            Set<Hit> tokenHits = new HashSet<>();
+            for (Set<Hit> hits : postings.subMap(token, token + Character.MAX_VALUE).values()) {
+                tokenHits.addAll(hits);
+            }
+            if (result == null) {
+                result = tokenHits;
+            } else {
+                result.retainAll(tokenHits);
+            }
+            if (result.isEmpty()) return Collections.emptyList();
+        }
+
+        // Sort by module and then by the position of the hit within its module.
+        Map<String, Map<ConfigGroup, Integer>> groupOrders = new HashMap<>();
+        List<Hit> sorted = new ArrayList<>(result);
+        sorted.sort((a, b) -> {
+            int c = a.module().compareToIgnoreCase(b.module());
+            return c != 0 ? c : Integer.compare(position(a, groupOrders), position(b, groupOrders));
+        });
+        return sorted;
+    }
+
+    private int position(Hit hit, Map<String, Map<ConfigGroup, Integer>> groupOrders) {
+        Map<ConfigGroup, Integer> groupOrder = groupOrders.computeIfAbsent(hit.module(), m -> {
+            Map<ConfigGroup, Integer> order = new IdentityHashMap<>();
+            numberGroups(indexedModules.get(m), order);
+            return order;
+        });
+        Integer groupIndex = groupOrder.get(hit.group());
+        return (groupIndex == null ? 0 : groupIndex) * 2 + (hit.param() == null ? 0 : 1);
+    }
+
+    private static void numberGroups(ConfigGroup group, Map<ConfigGroup, Integer> groupOrder) {
+        if (group == null) return;
+        groupOrder.put(group, groupOrder.size());
+        for (Collection<? extends ConfigGroup> sets : group.getParameterSets().values()) {
+            for (ConfigGroup set : sets) {
+                numberGroups(set, groupOrder);
+            }
+        }
+    }
+
+    private void remove(String moduleName) {
+        Map<String, List<Hit>> moduleTokens = tokensByModule.remove(moduleName);
+        indexedModules.remove(moduleName);
+        if (moduleTokens == null) return;
+        for (Map.Entry<String, List<Hit>> entry : moduleTokens.entrySet()) {
+            Set<Hit> hits = postings.get(entry.getKey());
+            if (hits == null) continue;
+            entry.getValue().forEach(hits::remove);
+            if (hits.isEmpty()) {
+                postings.remove(entry.getKey());
+            }
+        }
+    }
+
+    private static void indexGroup(String moduleName, ConfigGroup group, Map<String, List<Hit>> moduleTokens) {
+        Hit groupHit = new Hit(moduleName, group, null);
+        add(moduleTokens, group.getName(), groupHit);
+
+        Map<String, String> comments = group.getComments();
+        for (Map.Entry<String, String> param : group.getParams().entrySet()) {
+            Hit paramHit = new Hit(moduleName, group, param.getKey());
+            add(moduleTokens, param.getKey(), paramHit);
+            add(moduleTokens, param.getValue(), paramHit);
+            add(moduleTokens, comments.get(param.getKey()), paramHit);
+        }
+
+        for (Collection<? extends ConfigGroup> sets : group.getParameterSets().values()) {
+            for (ConfigGroup set : sets) {
+                indexGroup(moduleName, set, moduleTokens);
+            }
+        }
+    }
+
+    private static void add(Map<String, List<Hit>> moduleTokens, String text, Hit hit) {
+        for (String token : new LinkedHashSet<>(tokenize(text))) {
+            moduleTokens.computeIfAbsent(token, k -> new ArrayList<>()).add(hit);
+        }
+    }
+
+    /**
+     * Splits a text into lower-case tokens. Camel-case words additionally yield their parts.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) return tokens;
+        for (String word : text.split("[^\\p{Alnum}]+")) {
+            if (word.isEmpty()) continue;
+            tokens.add(word.toLowerCase(Locale.ROOT));
+            String[] parts = word.split("(?<=\\p{Ll})(?=\\p{Lu})|(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+            if (parts.length > 1) {
+                for (String part : parts) {
+                    tokens.add(part.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,277 @@
+package de.mobilitystudio.config;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.swing.BorderFactory;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import org.matsim.core.config.ConfigGroup;
+
+
+/**
+ * A flat, table-based view of a config module and its nested parameter sets.
+ * <p>
+ * Every parameter, parameter set header and comment is a lightweight {@link Row}; the table
+ * only creates renderers and editors for the visible cells, so modules with thousands of
+ * parameter sets do not create thousands of Swing components. Parameter sets can be collapsed
+ * by clicking on their header row. Edited values are committed with
+ * {@link ConfigGroup#addParam(String, String)}, so the group validates them as before.
+ */
+final class ConfigTreeTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    enum Kind { SET, PARAM, COMMENT }
+
+    /**
+     * One row of the table. {@code level} is the nesting depth of the group the row belongs to
+     * (0 for the module itself).
+     */
+    static final class Row {
+        final Kind kind;
+        final ConfigGroup group;
+        final ConfigGroup parent;
+        final int level;
+        final String name;
+        final String comment;
+        String value;
+        // The header row of the parameter set this row belongs to; null for rows of the module itself.
+        Row setRow;
+
+        private Row(Kind kind, ConfigGroup group, ConfigGroup parent, int level, String name, String value, String comment) {
+            this.kind = kind;
+            this.group = group;
+            this.parent = parent;
+            this.level = level;
+            this.name = name;
+            this.value = value;
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * Receives the outcome of an edit. A rejected value has not been applied to the group.
+     */
+    interface EditListener {
+        void parameterChanged(Row row);
+        void parameterRejected(Row row, String value, Exception reason);
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private final List<Row> visibleRows = new ArrayList<>();
+    // Collapsed parameter sets; owned by the caller so the state survives a rebuild of the model.
+    private final Set<ConfigGroup> collapsedSets;
+    private final EditListener listener;
+    // Header rows of the sets enclosing the row added last, innermost last.
+    private final List<Row> openSets = new ArrayList<>();
+    private Predicate<Row> filter;
+
+    ConfigTreeTableModel(Set<ConfigGroup> collapsedSets, EditListener listener) {
+        this.collapsedSets = collapsedSets;
+        this.listener = listener;
+    }
+
+    void addSetRow(ConfigGroup set, ConfigGroup parent, String label, int level) {
+        add(new Row(Kind.SET, set, parent, level, label, null, null));
+    }
+
+    void addParamRow(ConfigGroup group, String paramName, String value, String comment, int level) {
+        add(new Row(Kind.PARAM, group, null, level, paramName, value, comment));
+    }
+
+    /**
+     * Adds a comment row; {@code paramName} is the parameter the comment belongs to, if any.
+     */
+    void addCommentRow(ConfigGroup group, String paramName, String text, int level) {
+        add(new Row(Kind.COMMENT, group, null, level, paramName, text, text));
+    }
+
+    private void add(Row row) {
+        // A set row is nested in the open sets of a lower level; other rows belong to the set of their own level.
+        int enclosingLevel = row.kind == Kind.SET ? row.level - 1 : row.level;
+        while (!openSets.isEmpty() && openSets.get(openSets.size() - 1).level > enclosingLevel) {
+            openSets.remove(openSets.size() - 1);
+        }
+        row.setRow = openSets.isEmpty() ? null : openSets.get(openSets.size() - 1);
+        if (row.kind == Kind.SET) {
+            openSets.add(row);
+        }
+        rows.add(row);
+    }
+
+    /**
+     * Only shows the rows accepted by the filter, together with the headers of their enclosing
+     * sets; collapsed sets are expanded while a filter is set. Pass null to show all rows again.
+     */
+    void setFilter(Predicate<Row> filter) {
+        this.filter = filter;
+        updateVisibleRows();
+    }
+
+    /**
+     * Returns the index of the first visible parameter row with the given group and name, or -1.
+     */
+    int indexOf(ConfigGroup group, String paramName) {
+        for (int i = 0; i < visibleRows.size(); i++) {
+            Row row = visibleRows.get(i);
+            if (row.group == group && (paramName == null ? row.kind == Kind.SET : row.kind == Kind.PARAM && paramName.equals(row.name))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Must be called once after all rows have been added, and after collapsing or expanding.
+     */
+    void updateVisibleRows() {
+        visibleRows.clear();
+        if (filter != null) {
+            Set<Row> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Row row : rows) {
+                if (filter.test(row)) {
+                    for (Row r = row; r != null && shown.add(r); r = r.setRow) { }
+                }
+            }
+            for (Row row : rows) {
+                if (shown.contains(row)) visibleRows.add(row);
+            }
+            fireTableDataChanged();
+            return;
+        }
+        int hiddenBelowLevel = Integer.MAX_VALUE;
+        for (Row row : rows) {
+            if (row.kind == Kind.SET && row.level <= hiddenBelowLevel) {
+                // A set at the same or a higher level ends the collapsed set.
+                hiddenBelowLevel = Integer.MAX_VALUE;
+            }
+            if (row.kind == Kind.SET ? row.level > hiddenBelowLevel : row.level >= hiddenBelowLevel) {
+                continue;
+            }
+            visibleRows.add(row);
+            if (row.kind == Kind.SET && collapsedSets.contains(row.group)) {
+                hiddenBelowLevel = row.level;
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Collapses or expands the parameter set of the given row, if it is a set header.
+     */
+    void toggle(int rowIndex) {
+        Row row = getRow(rowIndex);
+        if (row.kind != Kind.SET) return;
+        if (!collapsedSets.remove(row.group)) {
+            collapsedSets.add(row.group);
+        }
+        updateVisibleRows();
+    }
+
+    Row getRow(int rowIndex) {
+        return visibleRows.get(rowIndex);
+    }
+
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    @Override
+    public int getRowCount() {
+        return visibleRows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? "Parameter" : "Value";
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = visibleRows.get(rowIndex);
+        switch (row.kind) {
+            case SET:
+                if (columnIndex == 1) return "";
+                return (collapsedSets.contains(row.group) ? "▸ " : "▾ ") + row.name;
+            case PARAM:
+                return columnIndex == 0 ? row.name : row.value;
+            default:
+                return columnIndex == 0 ? "" : row.value;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return columnIndex == 1 && visibleRows.get(rowIndex).kind == Kind.PARAM;
+    }
+
+    @Override
+    public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
+        Row row = visibleRows.get(rowIndex);
+        String newValue = aValue == null ? "" : aValue.toString();
+        if (row.kind != Kind.PARAM || Objects.equals(newValue, row.value)) return;
+        try {
+            row.group.addParam(row.name, newValue);
+        } catch (Exception e) {
+            listener.parameterRejected(row, newValue, e);
+            return;
+        }
+        // Show the value as the group stores it, e.g. after normalization by a typed setter.
+        String stored = row.group.getParams().get(row.name);
+        row.value = stored != null ? stored : newValue;
+        fireTableRowsUpdated(rowIndex, rowIndex);
+        listener.parameterChanged(row);
+    }
+
+    /**
+     * Indents rows by nesting level, highlights set headers and shows comments in gray.
+     */
+    static final class Renderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+        private static final int INDENT = 16;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int rowIndex, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, rowIndex, column);
+            Row row = ((ConfigTreeTableModel) table.getModel()).getRow(rowIndex);
+
+            Font font = table.getFont();
+            Color foreground = isSelected ? table.getSelectionForeground() : table.getForeground();
+            int indent = 4;
+            if (column == 0) {
+                indent += row.level * INDENT + (row.kind != Kind.SET && row.level > 0 ? INDENT : 0);
+            }
+            if (row.kind == Kind.SET) {
+                font = font.deriveFont(Font.BOLD);
+                if (!isSelected) foreground = Color.BLUE.darker();
+            } else if (row.kind == Kind.COMMENT) {
+                font = font.deriveFont(Font.ITALIC);
+                if (!isSelected) foreground = Color.GRAY;
+            }
+            setFont(font);
+            setForeground(foreground);
+            setBorder(BorderFactory.createEmptyBorder(0, indent, 0, 4));
+
+            String comment = row.comment;
+            setToolTipText(comment == null || comment.isBlank() ? null
+                    : "<html><p style=\"width:400px;\">" + comment.replace("&", "&amp;").replace("<", "&lt;")
+                            .replace(">", "&gt;").replace("\n", "<br>") + "</p></html>");
+            return this;
+        }
+    }
+}
@@ -9,22 +9,32 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.ByteArrayInputStream;
-import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.function.Predicate;
 
+import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -33,16 +43,26 @@ import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JRootPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
-import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigGroup;
@@ -54,8 +74,6 @@ import org.matsim.core.config.groups.RoutingConfigGroup.TeleportedModeParams;
 import org.matsim.core.config.groups.ScoringConfigGroup.ActivityParams;
 import org.matsim.core.config.groups.ScoringConfigGroup.ModeParams;
 import org.matsim.core.config.groups.ScoringConfigGroup.ScoringParameterSet;
-import org.reflections.Reflections;
-import org.reflections.scanners.Scanners;
 
 
 /**
@@ -68,13 +86,35 @@ public class EditorDialogConfig extends JDialog {
     private final Config backupConfig;
     private boolean applied = false;
     private JTabbedPane tabbedPane;
-    private Map<ConfigGroup, Map<String, JTextField>> paramGroupFieldsMap;
+    // Parameter tables of the tabs that have been built so far, by module name.
+    private Map<String, JTable> moduleTables;
+    // Collapsed parameter sets per module; kept across rebuilds of a tab.
+    private final Map<String, Set<ConfigGroup>> collapsedSetsByModule = new HashMap<>();
+    // Set when a value entered in a table was rejected by its config group.
+    private boolean editRejected = false;
+    // Module name of each tab; tab titles may be decorated (e.g. for error tabs).
+    private final List<String> tabModuleNames = new ArrayList<>();
+    private boolean populatingTabs = false;
     private final String configFilePath;
     private JCheckBox showCommentsSwitch;
     private boolean showComments = true; // Comments are visible by default
     private boolean showReducedConfig = false;
     private JCheckBox showReducedConfigSwitch;
     private final Set<String> defaultModuleNames;
+    // One default instance per config group class. They serve as read-only reference for the
+    // reduced config view, so they are created once instead of on every refresh.
+    private final Map<Class<?>, Optional<ConfigGroup>> defaultGroupCache = new HashMap<>();
+    // Result of hasChanges() per top-level module. An entry is dropped as soon as the module is
+    // modified (see markModuleChanged), so unchanged modules are not compared again.
+    private final Map<ConfigGroup, Boolean> hasChangesCache = new IdentityHashMap<>();
+    // Full-text index for the search box, kept up to date on edits.
+    private final ConfigSearchIndex searchIndex = new ConfigSearchIndex();
+    private JTextField searchField;
+    private JLabel searchStatusLabel;
+    private List<ConfigSearchIndex.Hit> searchHits = Collections.emptyList();
+    private int searchHitIndex = -1;
+    // Row filter of the current search, or null if the search box is empty.
+    private Predicate<ConfigTreeTableModel.Row> searchFilter;
 
     public EditorDialogConfig(JFrame parent, Config originalConfig, String configFilePath) {
         super(parent, true);
@@ -82,9 +122,10 @@ public class EditorDialogConfig extends JDialog {
         this.configFilePath = configFilePath;
         
         this.defaultModuleNames = ConfigUtils.createConfig().getModules().keySet();
+        ConfigGroupIndex.preload();
         
-        this.backupConfig = cloneConfig(originalConfig);
-        this.paramGroupFieldsMap = new HashMap<>();
+        this.backupConfig = ConfigCloner.copy(originalConfig);
+        this.moduleTables = new HashMap<>();
         initComponents();
         populateConfigData();
         setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
@@ -109,39 +150,19 @@ public class EditorDialogConfig extends JDialog {
         }
     }
     
+    /**
+     * Commits a value that is still being edited in one of the tables. Values are validated by
+     * {@link ConfigGroup#addParam(String, String)} when an edit is committed; if that fails, the
+     * user has already been told why and false is returned.
+     */
     private boolean applyUiChanges() {
-        for (ConfigGroup group : new ArrayList<>(paramGroupFieldsMap.keySet())) {
-            Map<String, JTextField> paramFields = paramGroupFieldsMap.get(group);
-            if (paramFields == null) continue;
-
-            for (String paramName : new ArrayList<>(paramFields.keySet())) {
-                JTextField field = paramFields.get(paramName);
-                if (field == null) continue;
-
-                String newValue = field.getText();
-                String currentValue = group.getParams().get(paramName);
-
-                // Only try to set the parameter if the value has actually changed
-                // to avoid unnecessary processing and potential errors.
-                if (currentValue == null || !currentValue.equals(newValue)) {
-                    try {
-                        group.addParam(paramName, newValue);
-                    } catch (Exception e) {
-                        // This is the direct feedback to the user.
-                        JOptionPane.showMessageDialog(this,
-                            "Could not apply change for parameter '" + paramName + "' in module '" + group.getName() + "'.\n" +
-                            "Value: '" + newValue + "'\n\n" +
-                            "Reason: " + e.getMessage(),
-                            "Invalid Parameter",
-                            JOptionPane.ERROR_MESSAGE);
-                        
-                        // Highlight the problematic field for the user
-                        field.requestFocusInWindow();
-                        field.selectAll();
-                        
-                        return false; // Abort the save operation
-                    }
-                }
+        editRejected = false;
+        for (JTable table : moduleTables.values()) {
+            if (table.isEditing() && !table.getCellEditor().stopCellEditing()) {
+                return false;
+            }
+            if (editRejected) {
+                return false; // Abort the save operation
             }
         }
         return true; // All changes were successful
@@ -180,6 +201,17 @@ public class EditorDialogConfig extends JDialog {
         }
     }
 
+    /**
+     * Like {@link #saveAndRefresh()}, but only rebuilds the tab of the selected module. Used for
+     * changes within a module (parameters and parameter sets), which are always made in the
+     * selected tab; the other tabs are kept as they are.
+     */
+    private void saveAndRefreshSelectedModule() {
+        if (applyUiChanges()) {
+            rebuildTab(tabbedPane.getSelectedIndex());
+        }
+    }
+
     private void initComponents() {
         setLayout(new BorderLayout(10, 10));
         ((JPanel) getContentPane()).setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -193,10 +225,18 @@ public class EditorDialogConfig extends JDialog {
         // Add separator lines between tabs for a cleaner look ---
         // This is a hint for modern Look-and-Feels to draw vertical lines.
         tabbedPane.putClientProperty("JTabbedPane.showTabSeparators", true);
+
+        // Tab contents are built when a tab is selected for the first time.
+        tabbedPane.addChangeListener(e -> {
+            if (!populatingTabs) {
+                buildTab(tabbedPane.getSelectedIndex());
+            }
+        });
         // Adds a 1-pixel gray line just below the tab area, separating it from the content.
         // tabbedPane.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, Color.LIGHT_GRAY));
         
         add(tabbedPane, BorderLayout.CENTER);
+        add(createSearchPanel(), BorderLayout.NORTH);
 
         JButton okButton = new JButton("OK");
         JButton applyButton = new JButton("Apply");
@@ -299,22 +339,9 @@ public class EditorDialogConfig extends JDialog {
         // 2. Get the names of all standard modules that come with a default config.
         Set<String> defaultModuleNames = ConfigUtils.createConfig().getModules().keySet();
 
-        // 3. Use Reflections to find all available ConfigGroup classes.
+        // 3. Look up all available ConfigGroup classes in the (cached) index.
         try {
-            Reflections reflections = new Reflections("org.matsim.contrib", "ch.sbb.matsim", "org.matsim.core.config.groups", Scanners.SubTypes);
-            Set<Class<? extends ConfigGroup>> moduleClasses = reflections.getSubTypesOf(ConfigGroup.class);
-
-            for (Class<? extends ConfigGroup> moduleClass : moduleClasses) {
-                if (java.lang.reflect.Modifier.isAbstract(moduleClass.getModifiers())) {
-                    continue;
-                }
-                try {
-                    ConfigGroup instance = moduleClass.getDeclaredConstructor().newInstance();
-                    allDiscoverableModules.put(instance.getName(), moduleClass);
-                } catch (Exception e) {
-                    // Silently ignore modules that cannot be instantiated.
-                }
-            }
+            allDiscoverableModules.putAll(ConfigGroupIndex.moduleClasses());
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
                 "Could not scan for custom modules. The 'reflections' library might be missing.\n\n" + e.getMessage(),
@@ -443,9 +470,8 @@ public class EditorDialogConfig extends JDialog {
             ConfigGroup newGroup = new ConfigGroup(moduleName);
             configToEdit.addModule(newGroup);
             saveAndRefresh();
-            for (int i=0; i < tabbedPane.getTabCount(); i++) {
-                if (tabbedPane.getTitleAt(i).equals(moduleName)) { tabbedPane.setSelectedIndex(i); break; }
-            }
+            int index = tabModuleNames.indexOf(moduleName);
+            if (index >= 0) tabbedPane.setSelectedIndex(index);
         }
     }
     
@@ -466,7 +492,7 @@ public class EditorDialogConfig extends JDialog {
                     group.addParam(paramName, paramValue);
 
                     // If successful, then we save and refresh the UI.
-                    saveAndRefresh();
+                    saveAndRefreshSelectedModule();
 
                 } catch (Exception e) {
                     // If it fails, we catch the exception and show the user a helpful error message.
@@ -493,10 +519,7 @@ public class EditorDialogConfig extends JDialog {
             String selectedKey = (String) comboBox.getSelectedItem();
             if (selectedKey != null) {
                 group.getParams().remove(selectedKey);
-                if (paramGroupFieldsMap.containsKey(group)) {
-                    paramGroupFieldsMap.get(group).remove(selectedKey);
-                }
-                saveAndRefresh();
+                saveAndRefreshSelectedModule();
             }
         }
     }
@@ -569,83 +592,55 @@ public class EditorDialogConfig extends JDialog {
                 for (String mode : new String[]{"car", "pt", "walk", "bike"}) newScoringSet.addModeParams(new ModeParams(mode));
             }
             parentGroup.addParameterSet(newSet);
-            saveAndRefresh();
+            saveAndRefreshSelectedModule();
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Failed to add parameter set of type '" + setType + "'.\nError: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    private void addConfigGroupToPanel(JPanel container, final ConfigGroup group, final ConfigGroup parentGroup, final ConfigGroup defaultGroup, int level) {
-        JPanel groupPanel = new JPanel(new BorderLayout(5, 5));
-        groupPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        if (level == 0) {
-            JPanel headerPanel = new JPanel(new BorderLayout());
-            JLabel moduleHeaderLabel = new JLabel("Module: " + group.getName() + " (" + group.getClass().getSimpleName() + ")");
-            moduleHeaderLabel.setFont(moduleHeaderLabel.getFont().deriveFont(Font.BOLD, 14f));
-            headerPanel.add(moduleHeaderLabel, BorderLayout.CENTER);
-            
-            if (!this.defaultModuleNames.contains(group.getName())) {
-                JButton removeModuleButton = createRemoveButton("Remove this entire module");
-                removeModuleButton.addActionListener(e -> {
-                    if (JOptionPane.showConfirmDialog(this, "Permanently remove module '" + group.getName() + "' and all its settings?", "Confirm", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION) {
-                        configToEdit.removeModule(group.getName());
-                        saveAndRefresh();
-                    }
-                });
-                headerPanel.add(removeModuleButton, BorderLayout.EAST);
+    /**
+     * Creates the popup menu for a row of a parameter table, with the actions that used to be
+     * buttons next to each parameter set.
+     */
+    private JPopupMenu createRowMenu(ConfigTreeTableModel.Row row) {
+        JPopupMenu menu = new JPopupMenu();
+        final ConfigGroup group = row.group;
+        int level = row.level;
+
+        List<String> sortedTypes = new ArrayList<>(discoverCreatableParameterSets(group));
+        sortedTypes.sort(String.CASE_INSENSITIVE_ORDER);
+        for (final String type : sortedTypes) {
+            JMenuItem addItem = new JMenuItem("Add " + type + "...");
+            addItem.addActionListener(e -> onAddParameterSet(group, type));
+            menu.add(addItem);
+        }
+
+        boolean allowParameterEditing = (level > 0) || (level == 0 && group.getClass().equals(ConfigGroup.class));
+        if (allowParameterEditing) {
+            JMenuItem addParamItem = new JMenuItem("Add Parameter...");
+            addParamItem.addActionListener(e -> onAddParameter(group));
+            menu.add(addParamItem);
+
+            if (!group.getParams().isEmpty()) {
+                JMenuItem removeParamItem = new JMenuItem("Remove Parameter...");
+                removeParamItem.addActionListener(e -> onRemoveParameter(group));
+                menu.add(removeParamItem);
             }
-            
-            headerPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
-            groupPanel.add(headerPanel, BorderLayout.NORTH);
-            groupPanel.setBorder(new EmptyBorder(10, 0, 10, 0));
-        } else {
-            String title = " " + getSetIdentifier(group) + " ";
-            groupPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), title, TitledBorder.LEADING, TitledBorder.TOP, null, Color.BLUE.darker()));
-            JButton removeSetButton = createRemoveButton("Remove this parameter set");
-            removeSetButton.addActionListener(e -> {
+        }
+
+        if (level > 0 && row.kind == ConfigTreeTableModel.Kind.SET) {
+            if (menu.getComponentCount() > 0) menu.addSeparator();
+            JMenuItem removeSetItem = new JMenuItem("Remove this parameter set");
+            removeSetItem.addActionListener(e -> {
                 if (JOptionPane.showConfirmDialog(this, "Remove set '" + getSetIdentifier(group) + "'?", "Confirm", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
-                    parentGroup.removeParameterSet(group);
-                    saveAndRefresh();
+                    row.parent.removeParameterSet(group);
+                    saveAndRefreshSelectedModule();
                 }
             });
-            JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
-            headerPanel.setOpaque(false);
-            headerPanel.add(removeSetButton);
-            groupPanel.add(headerPanel, BorderLayout.NORTH);
+            menu.add(removeSetItem);
         }
-
-        // Pass the corresponding 'defaultGroup' to the panel creator.
-        JPanel simpleParamsPanel = createSimpleParamsPanel(group, defaultGroup);
-        if (simpleParamsPanel.getComponentCount() > 0) groupPanel.add(simpleParamsPanel, BorderLayout.CENTER);
-        
-        JPanel childrenAndButtonsPanel = new JPanel();
-        childrenAndButtonsPanel.setLayout(new BoxLayout(childrenAndButtonsPanel, BoxLayout.Y_AXIS));
-        childrenAndButtonsPanel.setBorder(new EmptyBorder(0, 20, 0, 0));
-        childrenAndButtonsPanel.setOpaque(false);
-        
-        JPanel addButtonsPanel = createAddButtonsPanel(group, level);
-        
-        childrenAndButtonsPanel.add(addButtonsPanel);
-        // Pass the 'defaultGroup' (which acts as the default parent) to the child finder.
-        findAndDisplayChildSets(childrenAndButtonsPanel, group, defaultGroup, level);
-        if (childrenAndButtonsPanel.getComponentCount() > 0) groupPanel.add(childrenAndButtonsPanel, BorderLayout.SOUTH);
-        
-        container.add(groupPanel);
-    }
-    
-    private Config cloneConfig(Config original) {
-        try {
-            StringWriter stringWriter = new StringWriter();
-            new ConfigWriter(original).writeStream(stringWriter);
-            String configAsString = stringWriter.toString();
-            ByteArrayInputStream bais = new ByteArrayInputStream(configAsString.getBytes(StandardCharsets.UTF_8));
-//            Config clonedConfig = ConfigUtils.createConfig();
-            Config clonedConfig = new Config(); 
-
-            new ConfigReader(clonedConfig).parse(bais);
-            return clonedConfig;
-        } catch (Exception e) { throw new RuntimeException("Could not clone MATSim config object.", e); }
+        return menu;
     }
     
     private void onViewXml() {
@@ -710,25 +705,15 @@ public class EditorDialogConfig extends JDialog {
             defaultConfigGroups.put(group.getName(), group);
         }
 
-        // 3. Next, discover all other available modules (contribs, extensions)
-        //    using the same reflection mechanism as the "Add Custom Module" feature.
+        // 3. Next, instantiate the other modules (contribs, extensions) of the current config,
+        //    looked up in the same index as the "Add Custom Module" feature.
         try {
-            Reflections reflections = new Reflections("org.matsim.contrib", "ch.sbb.matsim", "org.matsim.core.config.groups", Scanners.SubTypes);
-            Set<Class<? extends ConfigGroup>> moduleClasses = reflections.getSubTypesOf(ConfigGroup.class);
-
-            for (Class<? extends ConfigGroup> moduleClass : moduleClasses) {
-                // Skip abstract classes and modules we already have from the default config.
-                if (java.lang.reflect.Modifier.isAbstract(moduleClass.getModifiers())) {
-                    continue;
-                }
-                try {
-                    ConfigGroup instance = moduleClass.getDeclaredConstructor().newInstance();
-                    // Add it if it's not already in our map.
-                    if (!defaultConfigGroups.containsKey(instance.getName())) {
-                        defaultConfigGroups.put(instance.getName(), instance);
+            for (String moduleName : configToEdit.getModules().keySet()) {
+                if (!defaultConfigGroups.containsKey(moduleName)) {
+                    ConfigGroup instance = ConfigGroupIndex.newInstance(moduleName);
+                    if (instance != null) {
+                        defaultConfigGroups.put(moduleName, instance);
                     }
-                } catch (Exception e) {
-                    // Silently ignore modules that cannot be instantiated.
                 }
             }
         } catch (Exception e) {
@@ -748,51 +733,119 @@ public class EditorDialogConfig extends JDialog {
         }
 
         // 5. Refresh the entire UI to display the newly added comments.
+        searchIndex.clear();
         populateConfigData();
     }
 
+    /**
+     * Rebuilds the list of module tabs. The content of a tab is only created when the tab is
+     * selected for the first time (see {@link #buildTab(int)}), so this stays cheap for configs
+     * with many modules and parameter sets.
+     */
     private void populateConfigData() {
         int selectedIndex = tabbedPane.getSelectedIndex();
-        tabbedPane.removeAll();
-        paramGroupFieldsMap.clear();
-        List<String> moduleNames = new ArrayList<>(configToEdit.getModules().keySet());
-        moduleNames.sort(String.CASE_INSENSITIVE_ORDER);
-        int tabIndex = 0;
-        for (String moduleName : moduleNames) {
-            ConfigGroup group = configToEdit.getModules().get(moduleName);
-            if (group == null) continue;
-            try {
-                JPanel moduleTabContentPanel = createModuleTabPanel(group);
-                JScrollPane scrollPane = new JScrollPane(moduleTabContentPanel, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-                scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-                scrollPane.setBorder(BorderFactory.createEmptyBorder());
-                tabbedPane.addTab(moduleName, scrollPane);
-
-                if (this.showReducedConfig) {
-                    if (hasChanges(group)) {
-                        // This tab has changes, so we can give it a distinct color (e.g., blue)
-                        // to indicate that it has modified parameters.
-                        tabbedPane.setForegroundAt(tabIndex, Color.BLUE);
-                    } else {
-                        // This tab has no changes from the default, so we gray it out
-                        // to indicate that it contains only default values.
-                        tabbedPane.setForegroundAt(tabIndex, Color.LIGHT_GRAY);
-                    }
-                } else {
-                    // If not in reduced config mode, all tabs are black.
-                    tabbedPane.setForegroundAt(tabIndex, Color.BLACK);
-                }
-                tabIndex++;
-            } catch (Exception ex) {
-                addErrorTab(moduleName, group, ex);
+        String selectedModule = (selectedIndex >= 0 && selectedIndex < tabModuleNames.size()) ? tabModuleNames.get(selectedIndex) : null;
+        populatingTabs = true;
+        try {
+            tabbedPane.removeAll();
+            tabModuleNames.clear();
+            moduleTables.clear();
+            collapsedSetsByModule.keySet().retainAll(configToEdit.getModules().keySet());
+            // Forget results of modules that were removed or replaced (e.g. by the XML editor).
+            hasChangesCache.keySet().removeIf(g -> configToEdit.getModules().get(g.getName()) != g);
+            List<String> moduleNames = new ArrayList<>(configToEdit.getModules().keySet());
+            moduleNames.sort(String.CASE_INSENSITIVE_ORDER);
+            for (String moduleName : moduleNames) {
+                ConfigGroup group = configToEdit.getModules().get(moduleName);
+                if (group == null) continue;
+                // Placeholder, replaced by the actual content in buildTab().
+                tabbedPane.addTab(moduleName, new JPanel());
+                tabModuleNames.add(moduleName);
+                updateTabColor(tabModuleNames.size() - 1, group);
             }
+        } finally {
+            populatingTabs = false;
         }
-        if (selectedIndex >= 0 && selectedIndex < tabbedPane.getTabCount()) {
-            tabbedPane.setSelectedIndex(selectedIndex);
+        // Keep the selected module selected; if it was removed, stay at the same position.
+        int index = tabModuleNames.indexOf(selectedModule);
+        if (index < 0 && selectedIndex >= 0) {
+            index = Math.min(selectedIndex, tabbedPane.getTabCount() - 1);
         }
+        if (index >= 0) {
+            tabbedPane.setSelectedIndex(index);
+        }
+        searchIndex.sync(configToEdit);
+        updateSearch(false);
+        buildTab(tabbedPane.getSelectedIndex());
         revalidate();
         repaint();
     }
+
+    /**
+     * Creates the content of the given tab, unless it has already been built.
+     */
+    private void buildTab(int index) {
+        if (index < 0 || index >= tabModuleNames.size()) return;
+        String moduleName = tabModuleNames.get(index);
+        if (moduleTables.containsKey(moduleName)) return;
+
+        ConfigGroup group = configToEdit.getModules().get(moduleName);
+        try {
+            tabbedPane.setComponentAt(index, createModuleTabPanel(moduleName, group));
+        } catch (Exception ex) {
+            moduleTables.put(moduleName, new JTable());
+            tabbedPane.setComponentAt(index, createErrorPanel(moduleName, ex));
+            tabbedPane.setTitleAt(index, "<html><font color='red'>" + moduleName + " (Error)</font></html>");
+        }
+    }
+
+    /**
+     * Rebuilds the content of the given tab after a change within its module, keeping the
+     * scroll position. All other tabs stay untouched.
+     */
+    private void rebuildTab(int index) {
+        if (index < 0 || index >= tabModuleNames.size()) return;
+        String moduleName = tabModuleNames.get(index);
+        JTable oldTable = moduleTables.remove(moduleName);
+        Point viewPosition = (oldTable != null && oldTable.getParent() instanceof JViewport)
+                ? ((JViewport) oldTable.getParent()).getViewPosition() : null;
+
+        ConfigGroup group = configToEdit.getModules().get(moduleName);
+        markModuleChanged(group);
+        searchIndex.update(moduleName, group);
+        if (searchFilter != null) {
+            updateSearch(false);
+        }
+        buildTab(index);
+        if (group != null) {
+            updateTabColor(index, group);
+        }
+
+        JTable newTable = moduleTables.get(moduleName);
+        if (viewPosition != null && newTable != null && newTable.getParent() instanceof JViewport) {
+            JViewport viewport = (JViewport) newTable.getParent();
+            SwingUtilities.invokeLater(() -> viewport.setViewPosition(viewPosition));
+        }
+        revalidate();
+        repaint();
+    }
+
+    private void updateTabColor(int index, ConfigGroup group) {
+        if (this.showReducedConfig) {
+            if (hasChanges(group)) {
+                // This tab has changes, so we can give it a distinct color (e.g., blue)
+                // to indicate that it has modified parameters.
+                tabbedPane.setForegroundAt(index, Color.BLUE);
+            } else {
+                // This tab has no changes from the default, so we gray it out
+                // to indicate that it contains only default values.
+                tabbedPane.setForegroundAt(index, Color.LIGHT_GRAY);
+            }
+        } else {
+            // If not in reduced config mode, all tabs are black.
+            tabbedPane.setForegroundAt(index, Color.BLACK);
+        }
+    }
     
     private JButton createRemoveButton(String tooltip) {
         JButton removeButton;
@@ -813,7 +866,41 @@ public class EditorDialogConfig extends JDialog {
         dispose();
     }
     
-    private void findAndDisplayChildSets(JPanel container, ConfigGroup group, ConfigGroup defaultParent, int level) {
+    /**
+     * Adds the rows of a group to the table model: first its parameters, then its parameter sets
+     * (recursively). In reduced config mode, parameters and sets equal to the defaults are skipped.
+     */
+    private void collectRows(ConfigTreeTableModel model, ConfigGroup group, ConfigGroup defaultGroup, int level) {
+        if (!group.getParams().isEmpty()) {
+            Map<String, String> comments = group.getComments();
+            Map<String, String> sortedParams = new TreeMap<>(group.getParams());
+            int shownParams = 0;
+            for (Map.Entry<String, String> entry : sortedParams.entrySet()) {
+                String paramName = entry.getKey();
+                String paramValue = entry.getValue();
+
+                if (this.showReducedConfig && defaultGroup != null) {
+                    String defaultValue = defaultGroup.getParams().get(paramName);
+                    // If a default value exists for this parameter AND it's the same as the current value, skip it.
+                    if (defaultValue != null && defaultValue.equals(paramValue)) {
+                        continue;
+                    }
+                }
+
+                String comment = comments.get(paramName);
+                if (comment != null && comment.trim().isEmpty()) comment = null;
+                model.addParamRow(group, paramName, paramValue != null ? paramValue : "", comment, level);
+                shownParams++;
+
+                if (this.showComments && comment != null) {
+                    model.addCommentRow(group, paramName, comment, level);
+                }
+            }
+            if (shownParams == 0 && this.showReducedConfig) {
+                model.addCommentRow(group, null, "No parameters have been changed from their default values.", level);
+            }
+        }
+
         Map<String, ? extends Collection<? extends ConfigGroup>> paramSets = group.getParameterSets();
         if (paramSets == null) return;
 
@@ -824,8 +911,8 @@ public class EditorDialogConfig extends JDialog {
         // For comparison, create a map of the default children for easy lookup.
         // This is only needed in reduced config mode.
         Map<String, ConfigGroup> defaultChildrenById = new HashMap<>();
-        if (this.showReducedConfig && defaultParent != null) {
-            for (Collection<? extends ConfigGroup> setCollection : defaultParent.getParameterSets().values()) {
+        if (this.showReducedConfig && defaultGroup != null) {
+            for (Collection<? extends ConfigGroup> setCollection : defaultGroup.getParameterSets().values()) {
                 for (ConfigGroup g : setCollection) {
                     defaultChildrenById.put(getSetIdentifier(g), g);
                 }
@@ -839,110 +926,257 @@ public class EditorDialogConfig extends JDialog {
             // A set has changes if it's new (no default child) or if it's different from the default.
             // We display the parameter set if we are not in reduced mode OR if it has changes.
             if (!this.showReducedConfig || defaultChild == null || areDifferent(paramSet, defaultChild)) {
-                // Note the last parameter in the recursive call: we pass the found 'defaultChild'.
-                addConfigGroupToPanel(container, paramSet, group, defaultChild, level + 1);
+                String identifier = getSetIdentifier(paramSet);
+                String label = identifier.equals(paramSet.getName()) ? identifier : paramSet.getName() + ": " + identifier;
+                model.addSetRow(paramSet, group, label, level + 1);
+                collectRows(model, paramSet, defaultChild, level + 1);
             }
         }
     }
 
-    private JPanel createModuleTabPanel(ConfigGroup group) {
-        JPanel containerPanel = new JPanel();
-        containerPanel.setLayout(new BoxLayout(containerPanel, BoxLayout.Y_AXIS));
+    private JPanel createModuleTabPanel(String moduleName, ConfigGroup group) {
+        JPanel containerPanel = new JPanel(new BorderLayout(5, 5));
         containerPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
 
+        // --- Header: module name, remove button and the module-level "Add" buttons ---
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        JLabel moduleHeaderLabel = new JLabel("Module: " + group.getName() + " (" + group.getClass().getSimpleName() + ")");
+        moduleHeaderLabel.setFont(moduleHeaderLabel.getFont().deriveFont(Font.BOLD, 14f));
+        headerPanel.add(moduleHeaderLabel, BorderLayout.CENTER);
+
+        if (!this.defaultModuleNames.contains(group.getName())) {
+            JButton removeModuleButton = createRemoveButton("Remove this entire module");
+            removeModuleButton.addActionListener(e -> {
+                if (JOptionPane.showConfirmDialog(this, "Permanently remove module '" + group.getName() + "' and all its settings?", "Confirm", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION) {
+                    configToEdit.removeModule(group.getName());
+                    saveAndRefresh();
+                }
+            });
+            headerPanel.add(removeModuleButton, BorderLayout.EAST);
+        }
+        headerPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
+
+        JPanel northPanel = new JPanel();
+        northPanel.setLayout(new BoxLayout(northPanel, BoxLayout.Y_AXIS));
+        headerPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        northPanel.add(headerPanel);
+        northPanel.add(createAddButtonsPanel(group, 0));
+        JLabel hintLabel = new JLabel("Click a parameter set to collapse or expand it; right-click a row for more actions.");
+        hintLabel.setForeground(Color.GRAY);
+        hintLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        northPanel.add(hintLabel);
+        containerPanel.add(northPanel, BorderLayout.NORTH);
+
         ConfigGroup defaultGroup = null;
-        // We only need to create the default group if we are in reduced config mode.
+        // We only need the default group if we are in reduced config mode.
         if (this.showReducedConfig) {
-            try {
-                // This is safe here, as top-level modules have a no-arg constructor.
-                defaultGroup = group.getClass().getDeclaredConstructor().newInstance();
-            } catch (Exception e) {
+            defaultGroup = getDefaultGroup(group);
+            if (defaultGroup == null) {
                 System.err.println("Could not create default instance for module " + group.getName() +
-                                   ". Reduced config view may not be accurate for this tab. Error: " + e.getMessage());
+                                   ". Reduced config view may not be accurate for this tab.");
             }
         }
 
-        // Pass the newly created defaultGroup into the main panel builder.
-        addConfigGroupToPanel(containerPanel, group, null, defaultGroup, 0);
-        containerPanel.add(Box.createVerticalGlue());
+        // --- The parameter table; only visible rows are rendered ---
+        Set<ConfigGroup> collapsedSets = collapsedSetsByModule.computeIfAbsent(moduleName,
+                k -> Collections.newSetFromMap(new IdentityHashMap<>()));
+        JTable table = new JTable();
+        ConfigTreeTableModel model = new ConfigTreeTableModel(collapsedSets, new ConfigTreeTableModel.EditListener() {
+            @Override
+            public void parameterChanged(ConfigTreeTableModel.Row row) {
+                markModuleChanged(group);
+                searchIndex.update(moduleName, group);
+                updateTabColor(tabModuleNames.indexOf(moduleName), group);
+            }
+
+            @Override
+            public void parameterRejected(ConfigTreeTableModel.Row row, String value, Exception reason) {
+                editRejected = true;
+                // This is the direct feedback to the user.
+                JOptionPane.showMessageDialog(EditorDialogConfig.this,
+                    "Could not apply change for parameter '" + row.name + "' in module '" + group.getName() + "'.\n" +
+                    "Value: '" + value + "'\n\n" +
+                    "Reason: " + reason.getMessage(),
+                    "Invalid Parameter",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        collectRows(model, group, defaultGroup, 0);
+        if (searchFilter != null) {
+            model.setFilter(searchFilter);
+        } else {
+            model.updateVisibleRows();
+        }
+
+        table.setModel(model);
+        table.setDefaultRenderer(Object.class, new ConfigTreeTableModel.Renderer());
+        table.setFillsViewportHeight(true);
+        table.setShowVerticalLines(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        table.getColumnModel().getColumn(0).setPreferredWidth(300);
+        table.getColumnModel().getColumn(1).setPreferredWidth(500);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (row < 0) return;
+                if (e.isPopupTrigger()) {
+                    showRowMenu(table, model, row, e);
+                } else if (SwingUtilities.isLeftMouseButton(e) && model.getRow(row).kind == ConfigTreeTableModel.Kind.SET) {
+                    model.toggle(row);
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if (row >= 0 && e.isPopupTrigger()) {
+                    showRowMenu(table, model, row, e);
+                }
+            }
+        });
+        moduleTables.put(moduleName, table);
+
+        if (model.isEmpty()) {
+            containerPanel.add(new JLabel("This module has no parameters."), BorderLayout.CENTER);
+        } else {
+            JScrollPane scrollPane = new JScrollPane(table);
+            scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+            containerPanel.add(scrollPane, BorderLayout.CENTER);
+        }
         return containerPanel;
     }
 
-    private JPanel createSimpleParamsPanel(ConfigGroup group, final ConfigGroup defaultConfig) {
-        JPanel panel = new JPanel(new GridBagLayout());
-        if (group.getParams().isEmpty()) return panel;
+    private void showRowMenu(JTable table, ConfigTreeTableModel model, int row, MouseEvent e) {
+        table.setRowSelectionInterval(row, row);
+        JPopupMenu menu = createRowMenu(model.getRow(row));
+        if (menu.getComponentCount() > 0) {
+            menu.show(table, e.getX(), e.getY());
+        }
+    }
 
-        // This method now uses the passed-in 'defaultConfig' for comparison.
+    /**
+     * Creates the search box above the tabs. Typing filters all tabs to the matching parameters
+     * and jumps to the first match; Enter and Shift+Enter go to the next and previous match.
+     */
+    private JPanel createSearchPanel() {
+        searchField = new JTextField(30);
+        searchField.setToolTipText("Search module names, parameter names, values and comments");
+        searchField.putClientProperty("JTextField.placeholderText", "Search parameters...");
+        searchField.putClientProperty("JTextField.showClearButton", true);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { updateSearch(true); }
+            @Override public void removeUpdate(DocumentEvent e) { updateSearch(true); }
+            @Override public void changedUpdate(DocumentEvent e) { updateSearch(true); }
+        });
+        searchField.addActionListener(e -> {
+            boolean backwards = (e.getModifiers() & ActionEvent.SHIFT_MASK) != 0;
+            showSearchHit(searchHitIndex + (backwards ? -1 : 1));
+        });
+        searchField.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "clearSearch");
+        searchField.getActionMap().put("clearSearch", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchField.setText("");
+            }
+        });
 
-        Map<String, String> comments = group.getComments();
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(2, 4, 2, 4);
-        gbc.anchor = GridBagConstraints.WEST;
-        int gridY = 0;
-        Map<String, JTextField> fieldsForThisGroup = new HashMap<>();
-        Map<String, String> sortedParams = new TreeMap<>(group.getParams());
-
-        for (Map.Entry<String, String> entry : sortedParams.entrySet()) {
-            String paramName = entry.getKey();
-            String paramValue = entry.getValue();
-
-            if (this.showReducedConfig && defaultConfig != null) {
-                String defaultValue = defaultConfig.getParams().get(paramName);
-                // If a default value exists for this parameter AND it's the same as the current value, skip rendering it.
-                if (defaultValue != null && defaultValue.equals(paramValue)) {
-                    continue; // Go to the next parameter in the loop
-                }
+        // Cmd+F or Ctrl+F moves the focus into the search box.
+        JRootPane rootPane = getRootPane();
+        rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_F, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()), "focusSearch");
+        rootPane.getActionMap().put("focusSearch", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchField.requestFocusInWindow();
+                searchField.selectAll();
             }
+        });
+
+        searchStatusLabel = new JLabel();
+        searchStatusLabel.setForeground(Color.GRAY);
 
-            gbc.gridy = gridY;
-            gbc.gridwidth = 1;
-            JLabel paramNameLabel = new JLabel(paramName + ":");
-            gbc.gridx = 0;
-            gbc.fill = GridBagConstraints.NONE;
-            gbc.weightx = 0.3;
-            panel.add(paramNameLabel, gbc);
-            JTextField valueField = new JTextField(paramValue != null ? paramValue : "", 35);
-            gbc.gridx = 1;
-            gbc.fill = GridBagConstraints.HORIZONTAL;
-            gbc.weightx = 0.7;
-            panel.add(valueField, gbc);
-            paramNameLabel.setLabelFor(valueField);
-            fieldsForThisGroup.put(paramName, valueField);
-
-            gridY++; 
-
-            String comment = comments.get(paramName);
-            if (this.showComments && comment != null && !comment.trim().isEmpty()) {
-                gbc.gridy = gridY;
-                gbc.gridx = 0;
-                gbc.gridwidth = 2;
-                gbc.insets = new Insets(0, 4, 8, 4);
-                String formattedComment = "<html><p style=\"width:500px;\"><i>" + comment.replace("\n", "<br>") + "</i></p></html>";
-                JLabel commentLabel = new JLabel(formattedComment);
-                commentLabel.setForeground(Color.GRAY);
-                panel.add(commentLabel, gbc);
-                gridY++;
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        searchPanel.add(searchStatusLabel);
+        return searchPanel;
+    }
+
+    /**
+     * Runs the query of the search box against the index, filters the tabs and their tables to
+     * the matches and, if {@code jump} is set, selects the first match.
+     */
+    private void updateSearch(boolean jump) {
+        if (searchField == null) return;
+        String query = searchField.getText().trim();
+        searchHits = query.isEmpty() ? Collections.emptyList() : searchIndex.search(query);
+
+        Set<String> matchedModules = new HashSet<>();
+        Set<ConfigGroup> matchedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<ConfigGroup, Set<String>> matchedParams = new IdentityHashMap<>();
+        for (ConfigSearchIndex.Hit hit : searchHits) {
+            matchedModules.add(hit.module());
+            if (hit.param() == null) {
+                matchedGroups.add(hit.group());
+            } else {
+                matchedParams.computeIfAbsent(hit.group(), g -> new HashSet<>()).add(hit.param());
             }
+        }
+        // A matching module or set shows all its rows; otherwise only the matching parameters.
+        searchFilter = query.isEmpty() ? null : row -> matchedGroups.contains(row.group)
+                || (row.name != null && matchedParams.getOrDefault(row.group, Collections.emptySet()).contains(row.name));
 
-            gbc.insets = new Insets(2, 4, 2, 4);
-            gbc.gridwidth = 1;
+        for (int i = 0; i < tabModuleNames.size(); i++) {
+            tabbedPane.setEnabledAt(i, searchFilter == null || matchedModules.contains(tabModuleNames.get(i)));
+        }
+        for (JTable table : moduleTables.values()) {
+            if (table.getModel() instanceof ConfigTreeTableModel) {
+                ((ConfigTreeTableModel) table.getModel()).setFilter(searchFilter);
+            }
         }
-        paramGroupFieldsMap.put(group, fieldsForThisGroup);
 
-        if (gridY == 0 && this.showReducedConfig) {
-            panel.add(new JLabel("No parameters have been changed from their default values."));
+        if (query.isEmpty()) {
+            searchStatusLabel.setText("");
+        } else if (searchHits.isEmpty()) {
+            searchStatusLabel.setText("No matches");
+        } else {
+            searchStatusLabel.setText(searchHits.size() + " matches in " + matchedModules.size() + " modules");
         }
 
-        return panel;
+        if (jump) {
+            searchHitIndex = -1;
+            showSearchHit(0);
+        } else if (searchHitIndex >= searchHits.size()) {
+            searchHitIndex = -1;
+        }
     }
-    
+
+    /**
+     * Selects the tab and the table row of the search hit with the given index (wrapping around).
+     */
+    private void showSearchHit(int index) {
+        if (searchHits.isEmpty()) return;
+        searchHitIndex = Math.floorMod(index, searchHits.size());
+        ConfigSearchIndex.Hit hit = searchHits.get(searchHitIndex);
+        searchStatusLabel.setText((searchHitIndex + 1) + " of " + searchHits.size() + " matches");
+
+        int tabIndex = tabModuleNames.indexOf(hit.module());
+        if (tabIndex < 0) return;
+        tabbedPane.setSelectedIndex(tabIndex);
+        buildTab(tabIndex);
+        JTable table = moduleTables.get(hit.module());
+        if (table == null || !(table.getModel() instanceof ConfigTreeTableModel)) return;
+        int row = ((ConfigTreeTableModel) table.getModel()).indexOf(hit.group(), hit.param());
+        if (row >= 0) {
+            table.setRowSelectionInterval(row, row);
+            table.scrollRectToVisible(table.getCellRect(row, 0, true));
+        }
+    }
+
     private String getSetIdentifier(ConfigGroup set) {
-        if (set instanceof ActivityParams) return ((ActivityParams) set).getActivityType();
-        if (set instanceof ModeParams) return ((ModeParams) set).getMode();
-        if (set instanceof StrategySettings) return ((StrategySettings) set).getStrategyName();
-        if (set instanceof TeleportedModeParams) return ((TeleportedModeParams) set).getMode();
-        if (set instanceof ScoringParameterSet) return ((ScoringParameterSet) set).getSubpopulation();
-        return set.getName();
+        return ConfigDiff.setIdentifier(set);
     }
     
     private boolean setIdentifierForNewSet(ConfigGroup set, String identifier) {
@@ -958,90 +1192,70 @@ public class EditorDialogConfig extends JDialog {
     
     /**
      * Checks if a ConfigGroup has any parameters or parameter sets that differ
-     * from a freshly created default instance of itself. This is the entry point
-     * for the recursive check.
+     * from a default instance of itself. This is the entry point for the recursive
+     * check. The result is cached until the module is marked as changed.
      *
      * @param group The ConfigGroup to check.
      * @return true if there are any changes, false otherwise.
      */
     private boolean hasChanges(ConfigGroup group) {
         if (group == null) return false;
-        try {
-            // Create the corresponding default config to compare against.
-            ConfigGroup defaultConfig = group.getClass().getDeclaredConstructor().newInstance();
+        Boolean cached = hasChangesCache.get(group);
+        if (cached != null) return cached;
+
+        // Get the corresponding default config to compare against.
+        ConfigGroup defaultConfig = getDefaultGroup(group);
+        boolean changed;
+        if (defaultConfig == null) {
+            System.err.println("Could not create default instance for " + group.getClass().getName() + ". Assuming it has changes.");
+            changed = true; // Fail safe: if we can't create a default, assume it's changed.
+        } else {
             // Call the recursive helper to perform the detailed comparison.
-            return areDifferent(group, defaultConfig);
-        } catch (Exception e) {
-            System.err.println("Could not create default instance for " + group.getClass().getName() + ". Assuming it has changes. Error: " + e.getMessage());
-            return true; // Fail safe: if we can't create a default, assume it's changed.
+            changed = areDifferent(group, defaultConfig);
+        }
+        hasChangesCache.put(group, changed);
+        return changed;
+    }
+
+    /**
+     * Returns the cached default instance for the class of the given group, or null if the
+     * class cannot be instantiated (e.g. generic modules without a dedicated class).
+     */
+    private ConfigGroup getDefaultGroup(ConfigGroup group) {
+        return defaultGroupCache.computeIfAbsent(group.getClass(), c -> {
+            try {
+                // This is safe here, as top-level modules have a no-arg constructor.
+                return Optional.of((ConfigGroup) c.getDeclaredConstructor().newInstance());
+            } catch (Exception e) {
+                System.err.println("Could not create default instance for " + c.getName() + ". Error: " + e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Drops the cached comparison result of a top-level module after it was modified.
+     */
+    private void markModuleChanged(ConfigGroup module) {
+        if (module != null) {
+            hasChangesCache.remove(module);
         }
     }
     
     /**
      * Recursively compares two ConfigGroup objects (a current one and a default one)
      * to see if there are any differences in their parameters or child parameter sets.
+     * See {@link ConfigDiff#areDifferent(ConfigGroup, ConfigGroup)}.
      *
      * @param current The current ConfigGroup with user values.
      * @param defaultGroup The default ConfigGroup to compare against.
      * @return true if any differences are found, false otherwise.
      */
     private boolean areDifferent(ConfigGroup current, ConfigGroup defaultGroup) {
-        // 1. Compare simple parameters using Map.equals(), which is robust.
-        if (!current.getParams().equals(defaultGroup.getParams())) {
-            return true;
-        }
-
-        // 2. Compare the structure of the nested parameter sets.
-        Map<String, ? extends Collection<? extends ConfigGroup>> currentSetsMap = current.getParameterSets();
-        Map<String, ? extends Collection<? extends ConfigGroup>> defaultSetsMap = defaultGroup.getParameterSets();
-
-        // Check if the types of available sets are different (e.g., one has 'activityParams' and the other doesn't).
-        if (!currentSetsMap.keySet().equals(defaultSetsMap.keySet())) {
-            return true;
-        }
-
-        // 3. For each type of parameter set (e.g., "strategySettings"), compare the individual sets.
-        for (String setType : currentSetsMap.keySet()) {
-            Collection<? extends ConfigGroup> currentSets = currentSetsMap.get(setType);
-            Collection<? extends ConfigGroup> defaultSets = defaultSetsMap.get(setType);
-
-            // Check if the number of sets is different (e.g., user added a new strategy).
-            if (currentSets.size() != defaultSets.size()) {
-                return true;
-            }
-
-            // Map sets by their unique identifier for direct comparison.
-            Map<String, ConfigGroup> currentChildrenById = new HashMap<>();
-            for (ConfigGroup g : currentSets) {
-                currentChildrenById.put(getSetIdentifier(g), g);
-            }
-            
-            Map<String, ConfigGroup> defaultChildrenById = new HashMap<>();
-            for (ConfigGroup g : defaultSets) {
-                defaultChildrenById.put(getSetIdentifier(g), g);
-            }
-
-            // Check if the set of identifiers has changed (e.g., default has mode 'car', current has 'truck').
-            if (!currentChildrenById.keySet().equals(defaultChildrenById.keySet())) {
-                return true;
-            }
-
-            // 4. If structures match, recursively check each corresponding child pair for changes.
-            for (String id : currentChildrenById.keySet()) {
-                ConfigGroup currentChild = currentChildrenById.get(id);
-                ConfigGroup defaultChild = defaultChildrenById.get(id); // This will exist due to the keySet check above.
-
-                if (areDifferent(currentChild, defaultChild)) { // The recursive call
-                    return true;
-                }
-            }
-        }
-        
-        // If we've gotten this far, no differences were found at this level or any level below it.
-        return false;
+        return ConfigDiff.areDifferent(current, defaultGroup);
     }
     
-    private void addErrorTab(String moduleName, ConfigGroup group, Exception ex) {
+    private JPanel createErrorPanel(String moduleName, Exception ex) {
         JPanel errorPanel = new JPanel(new BorderLayout());
         errorPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
         JTextArea errorArea = new JTextArea("Warning: The configuration module '" + moduleName + "' could not be processed correctly.\n\nDetails: " + ex.toString());
@@ -1051,7 +1265,7 @@ public class EditorDialogConfig extends JDialog {
         errorArea.setForeground(Color.RED.darker());
         errorArea.setBackground(getBackground());
         errorPanel.add(new JScrollPane(errorArea), BorderLayout.CENTER);
-        tabbedPane.addTab("<html><font color='red'>" + moduleName + " (Error)</font></html>", errorPanel);
+        return errorPanel;
     }
     
     public boolean isApplied() { return applied; }
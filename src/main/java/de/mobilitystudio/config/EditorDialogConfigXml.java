@@ -10,29 +10,36 @@ import java.awt.event.ActionEvent;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.io.StringWriter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.AbstractAction;
 import javax.swing.ActionMap;
+import javax.swing.BorderFactory;
 import javax.swing.InputMap;
 import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JRootPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
-import javax.swing.text.AttributeSet;
-import javax.swing.text.SimpleAttributeSet;
-import javax.swing.text.StyleConstants;
-import javax.swing.text.StyleContext;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.undo.UndoManager;
 
 import org.matsim.core.config.Config;
@@ -47,6 +54,8 @@ public class EditorDialogConfigXml extends JDialog {
     private final JTextPane textPane;
     private String xmlText;
     private boolean applied = false;
+    // False until the highlighted document has been built and installed in the text pane.
+    private boolean loaded = false;
     private String lastSearchTerm;
 
     private final UndoManager undoManager;
@@ -54,11 +63,22 @@ public class EditorDialogConfigXml extends JDialog {
     private final JButton prevButton;
     private final JButton nextButton;
 
-    // Regex for basic XML syntax highlighting
-    private static final Pattern XML_TAG_PATTERN = Pattern.compile("(<[a-zA-Z0-9_\\-./]+)|(</[a-zA-Z0-9_\\-]+>)|(/>)");
-    private static final Pattern XML_ATTRIBUTE_PATTERN = Pattern.compile("\\s+([a-zA-Z0-9_\\-]+)=|\n");
-    private static final Pattern XML_VALUE_PATTERN = Pattern.compile("\"(.*?)\"");
-    private static final Pattern XML_COMMENT_PATTERN = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private final XmlSyntaxHighlighter highlighter;
+
+    // Background validation while typing: one run at a time on a single worker thread, as the
+    // validator is not thread-safe. Every edit outdates the current run, which then stops.
+    private static final int VALIDATION_DELAY_MILLIS = 500;
+    private final XmlConfigValidator validator = new XmlConfigValidator();
+    private final XmlValidationGutter validationGutter;
+    private final JLabel validationLabel = new JLabel();
+    private final Timer validationTimer;
+    private final AtomicInteger validationRun = new AtomicInteger();
+    private final ExecutorService validationExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "xml-validator");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> validationTask;
 
     public EditorDialogConfigXml(JDialog owner, Config config) {
         super(owner, "XML Source Editor", true);
@@ -69,21 +89,42 @@ public class EditorDialogConfigXml extends JDialog {
 
         textPane = new JTextPane();
         textPane.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
-        textPane.setEditable(true);
+        textPane.setEditable(false);
+        textPane.setText("Loading...");
 
         undoManager = new UndoManager();
-        textPane.getDocument().addUndoableEditListener(new UndoableEditListener() {
-            @Override
-            public void undoableEditHappened(UndoableEditEvent e) {
-                undoManager.addEdit(e.getEdit());
-            }
+
+        // The highlighted document is built in the background; large configs would otherwise
+        // block the dialog for seconds.
+        highlighter = new XmlSyntaxHighlighter(textPane);
+        highlighter.load(this.xmlText, () -> {
+            // Registered only now, so the user can't "undo" the file loading.
+            textPane.getDocument().addUndoableEditListener(new UndoableEditListener() {
+                @Override
+                public void undoableEditHappened(UndoableEditEvent e) {
+                    // Highlighting changes are not user edits.
+                    if (!XmlSyntaxHighlighter.isStyleChange(e.getEdit())) {
+                        undoManager.addEdit(e.getEdit());
+                    }
+                }
+            });
+            textPane.getDocument().addDocumentListener(new DocumentListener() {
+                @Override public void insertUpdate(DocumentEvent e) { textChanged(); }
+                @Override public void removeUpdate(DocumentEvent e) { textChanged(); }
+                @Override public void changedUpdate(DocumentEvent e) { }
+            });
+            textPane.setEditable(true);
+            textPane.setCaretPosition(0);
+            this.loaded = true;
+            validateInBackground();
         });
 
-        applySyntaxHighlighting(this.xmlText);
-        // After initial text is set, clear the undo history so the user can't "undo" the file loading.
-        undoManager.discardAllEdits();
+        validationTimer = new Timer(VALIDATION_DELAY_MILLIS, e -> validateInBackground());
+        validationTimer.setRepeats(false);
 
         JScrollPane scrollPane = new JScrollPane(textPane);
+        validationGutter = new XmlValidationGutter(textPane);
+        scrollPane.setRowHeaderView(validationGutter);
 
         // --- Buttons ---
         JButton applyButton = new JButton("OK");
@@ -138,6 +179,8 @@ public class EditorDialogConfigXml extends JDialog {
         
         JPanel southPanel = new JPanel(new BorderLayout());
         southPanel.add(leftButtonPanel, BorderLayout.WEST);
+        validationLabel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+        southPanel.add(validationLabel, BorderLayout.CENTER);
         southPanel.add(rightButtonPanel, BorderLayout.EAST);
 
         setLayout(new BorderLayout(10, 10));
@@ -209,8 +252,61 @@ public class EditorDialogConfigXml extends JDialog {
         textInputMap.put(redoKeyStrokeShiftZ, "redoAction");
     }
 
+    private void textChanged() {
+        validationRun.incrementAndGet();
+        validationTimer.restart();
+    }
+
+    /**
+     * Validates the text on the worker thread and shows the result in the gutter. Called once
+     * the text has not changed for {@link #VALIDATION_DELAY_MILLIS}; the snapshot of the text is
+     * taken on the worker thread too, under the read lock of the document.
+     */
+    private void validateInBackground() {
+        final int run = validationRun.incrementAndGet();
+        final Document document = textPane.getDocument();
+        if (validationTask != null) {
+            validationTask.cancel(false);
+        }
+        validationTask = validationExecutor.submit(() -> {
+            if (run != validationRun.get()) return;
+            String[] text = new String[1];
+            document.render(() -> {
+                try {
+                    text[0] = document.getText(0, document.getLength());
+                } catch (BadLocationException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            List<XmlConfigValidator.Problem> problems = validator.validate(text[0], () -> run != validationRun.get());
+            SwingUtilities.invokeLater(() -> {
+                if (run != validationRun.get()) return; // The text has changed in the meantime.
+                validationGutter.setProblems(problems);
+                long errors = problems.stream().filter(XmlConfigValidator.Problem::error).count();
+                long warnings = problems.size() - errors;
+                if (problems.isEmpty()) {
+                    validationLabel.setText("No problems found.");
+                    validationLabel.setForeground(new Color(0, 128, 0));
+                } else {
+                    validationLabel.setText(errors + " error(s), " + warnings + " warning(s) - see the markers left of the text.");
+                    validationLabel.setForeground(errors > 0 ? Color.RED : new Color(230, 140, 0));
+                }
+            });
+        });
+    }
+
+    @Override
+    public void dispose() {
+        validationTimer.stop();
+        validationRun.incrementAndGet();
+        validationExecutor.shutdownNow();
+        super.dispose();
+    }
+
     private void onApply() {
-        this.xmlText = textPane.getText();
+        if (this.loaded) {
+            this.xmlText = textPane.getText();
+        }
         this.applied = true;
         dispose();
     }
@@ -329,33 +425,4 @@ public class EditorDialogConfigXml extends JDialog {
     public String getUpdatedXmlText() {
         return applied ? this.xmlText : null;
     }
-    
-    /**
-     * Applies syntax highlighting to the text in the JTextPane.
-     */
-    private void applySyntaxHighlighting(String text) {
-        textPane.setText(text);
-        
-        StyleContext styleContext = StyleContext.getDefaultStyleContext();
-        
-        // Define styles
-        AttributeSet tagStyle = styleContext.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, new Color(0, 0, 150)); // Dark Blue for tags
-        AttributeSet attrStyle = styleContext.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, new Color(150, 0, 0)); // Dark Red for attributes
-        AttributeSet valueStyle = styleContext.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, new Color(0, 128, 0)); // Green for values
-        AttributeSet commentStyle = styleContext.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, Color.GRAY);
-        styleContext.addAttribute(commentStyle, StyleConstants.Italic, true);
-        
-        // Apply styles using regex
-        highlightWithPattern(XML_COMMENT_PATTERN, commentStyle);
-        highlightWithPattern(XML_TAG_PATTERN, tagStyle);
-        highlightWithPattern(XML_ATTRIBUTE_PATTERN, attrStyle);
-        highlightWithPattern(XML_VALUE_PATTERN, valueStyle);
-    }
-
-    private void highlightWithPattern(Pattern pattern, AttributeSet style) {
-        Matcher matcher = pattern.matcher(textPane.getText());
-        while(matcher.find()) {
-            textPane.getStyledDocument().setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), style, false);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package de.mobilitystudio.config;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.matsim.core.config.ConfigGroup;
+
+
+/**
+ * Checks the text of the XML editor without building a {@link org.matsim.core.config.Config}:
+ * well-formedness (with StAX) and module, parameter set and parameter names (against fresh
+ * instances of the config groups from the {@link ConfigGroupIndex}). Well-formedness problems
+ * are errors, because the {@code ConfigReader} would fail on them; unknown names are warnings.
+ * <p>
+ * Meant to run on a worker thread, one run at a time, as the StAX factory is not thread-safe;
+ * the config group instances used for the name checks are cached by their path
+ * ({@code module/parameterset/...}), so repeated runs are cheap.
+ */
+final class XmlConfigValidator {
+
+    record Problem(int line, String message, boolean error) { }
+
+    // Template group per path; empty if the path cannot be checked (unknown or generic group).
+    private final Map<String, Optional<ConfigGroup>> templates = new ConcurrentHashMap<>();
+
+    private final XMLInputFactory factory;
+
+    XmlConfigValidator() {
+        factory = XMLInputFactory.newInstance();
+        // Never load the config DTD from the internet while the user types.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Returns the problems of the given XML text, sorted by line. Parsing stops at the first
+     * well-formedness error.
+     */
+    List<Problem> validate(String xml) {
+        return validate(xml, () -> false);
+    }
+
+    /**
+     * Like {@link #validate(String)}, but stops early (with the problems found so far) once
+     * {@code cancelled} returns true, e.g. because the text has changed again.
+     */
+    List<Problem> validate(String xml, BooleanSupplier cancelled) {
+        List<Problem> problems = new ArrayList<>();
+        // One entry per open module / parameterset element: its path, or null if it is not checked.
+        Deque<Optional<String>> groups = new ArrayDeque<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(new StringReader(xml));
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (cancelled.getAsBoolean()) break;
+                    String element = reader.getLocalName();
+                    int line = reader.getLocation().getLineNumber();
+                    String parent = groups.isEmpty() ? null : groups.peek().orElse(null);
+                    if (element.equals("module")) {
+                        groups.push(Optional.ofNullable(checkModule(reader.getAttributeValue(null, "name"), line, problems)));
+                    } else if (element.equals("parameterset")) {
+                        groups.push(Optional.ofNullable(checkParameterSet(parent, groups.isEmpty(), reader.getAttributeValue(null, "type"), line, problems)));
+                    } else if (element.equals("param")) {
+                        checkParam(parent, groups.isEmpty(), reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"), line, problems);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if ((element.equals("module") || element.equals("parameterset")) && !groups.isEmpty()) {
+                        groups.pop();
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            int line = e.getLocation() != null ? e.getLocation().getLineNumber() : 1;
+            String message = e.getMessage();
+            // StAX prefixes the message with the location, which is shown in the gutter anyway.
+            int index = message == null ? -1 : message.indexOf("Message: ");
+            problems.add(new Problem(Math.max(line, 1), index >= 0 ? message.substring(index + 9) : message, true));
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing to clean up.
+                }
+            }
+        }
+        problems.sort((a, b) -> Integer.compare(a.line(), b.line()));
+        return problems;
+    }
+
+    private String checkModule(String name, int line, List<Problem> problems) {
+        if (name == null || name.isEmpty()) {
+            problems.add(new Problem(line, "Module without a name.", true));
+            return null;
+        }
+        if (!ConfigGroupIndex.moduleClasses().containsKey(name)) {
+            problems.add(new Problem(line, "Unknown module '" + name + "'. It will be read as a generic module.", false));
+            return null;
+        }
+        return template(name, () -> ConfigGroupIndex.newInstance(name)) ? name : null;
+    }
+
+    private String checkParameterSet(String parent, boolean topLevel, String type, int line, List<Problem> problems) {
+        if (topLevel) {
+            problems.add(new Problem(line, "Parameter set outside of a module.", true));
+            return null;
+        }
+        if (type == null || type.isEmpty()) {
+            problems.add(new Problem(line, "Parameter set without a type.", true));
+            return null;
+        }
+        if (parent == null) return null;
+        String path = parent + "/" + type;
+        ConfigGroup parentGroup = templates.get(parent).orElse(null);
+        boolean known = template(path, () -> parentGroup.createParameterSet(type));
+        if (!known) {
+            // The parent is typed (otherwise it would not be checked), but it does not create a
+            // typed set of this type, so the ConfigReader falls back to a generic group.
+            problems.add(new Problem(line, "Unknown parameter set type '" + type + "' in '" + parent
+                    + "'. It will be read as a generic parameter set.", false));
+        }
+        return known ? path : null;
+    }
+
+    private void checkParam(String parent, boolean topLevel, String name, String value, int line, List<Problem> problems) {
+        if (topLevel) {
+            problems.add(new Problem(line, "Parameter outside of a module.", true));
+            return;
+        }
+        if (name == null || name.isEmpty()) {
+            problems.add(new Problem(line, "Parameter without a name.", true));
+            return;
+        }
+        if (value == null) {
+            problems.add(new Problem(line, "Parameter '" + name + "' has no value.", true));
+        }
+        if (parent == null) return;
+        ConfigGroup group = templates.get(parent).orElse(null);
+        if (group != null && !isGeneric(group)
+                && !group.getParams().containsKey(name) && !group.getComments().containsKey(name)) {
+            problems.add(new Problem(line, "Unknown parameter '" + name + "' in '" + parent + "'.", false));
+        }
+    }
+
+    /**
+     * Creates and caches the template group of a path; returns true if the path can be checked.
+     */
+    private boolean template(String path, Supplier<ConfigGroup> creator) {
+        return templates.computeIfAbsent(path, p -> {
+            try {
+                return Optional.ofNullable(creator.get());
+            } catch (Exception | LinkageError e) {
+                return Optional.empty();
+            }
+        }).filter(g -> !isGeneric(g)).isPresent();
+    }
+
+    private static boolean isGeneric(ConfigGroup group) {
+        return group == null || group.getClass() == ConfigGroup.class;
+    }
+}
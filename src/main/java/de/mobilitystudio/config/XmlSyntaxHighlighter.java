@@ -0,0 +1,302 @@
+package de.mobilitystudio.config;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
+import javax.swing.undo.UndoableEdit;
+
+
+/**
+ * Incremental XML syntax highlighting for a {@link JTextPane}.
+ * <p>
+ * A small line-based lexer remembers the lexer state at the start of every line (inside a
+ * comment, a tag, an attribute value or plain text). The initial document is built and
+ * highlighted in a background thread and then installed in the text pane. After an edit, only
+ * the damaged lines are lexed again, continuing until the state at the start of a line matches
+ * the stored one; edits are coalesced by a short timer so that typing or pasting does not lex
+ * the same lines repeatedly.
+ */
+final class XmlSyntaxHighlighter implements DocumentListener {
+
+    private enum State { TEXT, TAG, COMMENT, VALUE_DQ, VALUE_SQ }
+
+    private static final int PLAIN = 0, TAG = 1, ATTRIBUTE = 2, VALUE = 3, COMMENT = 4;
+
+    private static final SimpleAttributeSet[] STYLES = new SimpleAttributeSet[5];
+    static {
+        for (int i = 0; i < STYLES.length; i++) STYLES[i] = new SimpleAttributeSet();
+        StyleConstants.setForeground(STYLES[TAG], new Color(0, 0, 150)); // Dark Blue for tags
+        StyleConstants.setForeground(STYLES[ATTRIBUTE], new Color(150, 0, 0)); // Dark Red for attributes
+        StyleConstants.setForeground(STYLES[VALUE], new Color(0, 128, 0)); // Green for values
+        StyleConstants.setForeground(STYLES[COMMENT], Color.GRAY);
+        StyleConstants.setItalic(STYLES[COMMENT], true);
+    }
+
+    private static final int DEBOUNCE_MILLIS = 100;
+
+    private final JTextPane textPane;
+    // Lexer state at the start of each line of the installed document.
+    private List<State> lineStates = new ArrayList<>();
+    private final Timer timer;
+    // Damaged character range since the last re-highlighting, or -1 if nothing is damaged.
+    private int damagedFrom = -1;
+    private int damagedTo = -1;
+
+    XmlSyntaxHighlighter(JTextPane textPane) {
+        this.textPane = textPane;
+        this.timer = new Timer(DEBOUNCE_MILLIS, e -> rehighlightDamagedLines());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Builds a highlighted document for the given text in a background thread, installs it in the
+     * text pane and then runs {@code onLoaded} on the event dispatch thread.
+     */
+    void load(String text, Runnable onLoaded) {
+        Thread t = new Thread(() -> {
+            DefaultStyledDocument doc = new DefaultStyledDocument();
+            List<State> states = new ArrayList<>();
+            try {
+                doc.insertString(0, text, null);
+                // The document is not shown yet, so it can be styled outside the EDT.
+                State state = State.TEXT;
+                List<int[]> runs = new ArrayList<>();
+                int lineStart = 0;
+                while (lineStart <= text.length()) {
+                    int newline = text.indexOf('\n', lineStart);
+                    int lineEnd = newline < 0 ? text.length() : newline + 1;
+                    states.add(state);
+                    runs.clear();
+                    state = lexLine(text.substring(lineStart, lineEnd), lineStart, state, runs);
+                    applyRuns(doc, runs);
+                    if (newline < 0) break;
+                    lineStart = lineEnd;
+                }
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+            SwingUtilities.invokeLater(() -> {
+                textPane.setDocument(doc);
+                lineStates = states;
+                doc.addDocumentListener(this);
+                onLoaded.run();
+            });
+        }, "xml-highlighter");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Returns true for the attribute changes made by the highlighter, which must not end up in the
+     * undo history.
+     */
+    static boolean isStyleChange(UndoableEdit edit) {
+        return edit instanceof AbstractDocument.DefaultDocumentEvent
+                && ((AbstractDocument.DefaultDocumentEvent) edit).getType() == DocumentEvent.EventType.CHANGE;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        if (damagedFrom >= 0) {
+            if (damagedFrom >= offset) damagedFrom += length;
+            if (damagedTo >= offset) damagedTo += length;
+        }
+        damage(e, offset, offset + length);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        int offset = e.getOffset();
+        if (damagedFrom >= 0) {
+            damagedFrom = damagedFrom <= offset ? damagedFrom : Math.max(offset, damagedFrom - e.getLength());
+            damagedTo = damagedTo <= offset ? damagedTo : Math.max(offset, damagedTo - e.getLength());
+        }
+        damage(e, offset, offset);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Attribute changes, i.e. our own highlighting.
+    }
+
+    private void damage(DocumentEvent e, int from, int to) {
+        // Keep one state per line: the first changed line keeps its start state, new lines are unknown.
+        Element root = e.getDocument().getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        if (change != null && change.getIndex() < lineStates.size()) {
+            int index = change.getIndex();
+            State first = lineStates.get(index);
+            int removed = Math.min(change.getChildrenRemoved().length, lineStates.size() - index);
+            lineStates.subList(index, index + removed).clear();
+            lineStates.addAll(index, Collections.nCopies(change.getChildrenAdded().length, (State) null));
+            if (change.getChildrenAdded().length > 0) {
+                lineStates.set(index, first);
+            }
+        }
+        damagedFrom = damagedFrom < 0 ? from : Math.min(damagedFrom, from);
+        damagedTo = Math.max(damagedTo, to);
+        timer.restart();
+    }
+
+    private void rehighlightDamagedLines() {
+        if (damagedFrom < 0) return;
+        StyledDocument doc = textPane.getStyledDocument();
+        Element root = doc.getDefaultRootElement();
+        int firstLine = root.getElementIndex(Math.min(damagedFrom, doc.getLength()));
+        int lastLine = root.getElementIndex(Math.min(damagedTo, doc.getLength()));
+        damagedFrom = -1;
+        damagedTo = -1;
+        if (lineStates.size() != root.getElementCount()) {
+            // Should not happen; start over with unknown states.
+            lineStates = new ArrayList<>();
+            for (int i = 0; i < root.getElementCount(); i++) lineStates.add(null);
+            lineStates.set(0, State.TEXT);
+            firstLine = 0;
+            lastLine = root.getElementCount() - 1;
+        }
+
+        // Start at the closest line before the damage whose start state is known.
+        int line = firstLine;
+        while (line > 0 && lineStates.get(line) == null) line--;
+        State state = line == 0 ? State.TEXT : lineStates.get(line);
+
+        List<int[]> runs = new ArrayList<>();
+        try {
+            for (; line < root.getElementCount(); line++) {
+                if (line > lastLine && lineStates.get(line) == state) {
+                    break; // The following lines are lexed the same way as before.
+                }
+                lineStates.set(line, state);
+                Element element = root.getElement(line);
+                int start = element.getStartOffset();
+                int end = Math.min(element.getEndOffset(), doc.getLength());
+                runs.clear();
+                state = lexLine(doc.getText(start, end - start), start, state, runs);
+                applyRuns(doc, runs);
+            }
+        } catch (BadLocationException e) {
+            // The document changed underneath; the next edit re-highlights it.
+        }
+    }
+
+    private static void applyRuns(StyledDocument doc, List<int[]> runs) {
+        for (int[] run : runs) {
+            if (run[1] <= run[0]) continue;
+            doc.setCharacterAttributes(run[0], run[1] - run[0], STYLES[run[2]], true);
+        }
+    }
+
+    /**
+     * Lexes one line (including its line break) that starts in the given state. Adds runs of
+     * {start, end, style} covering the whole line and returns the state at the end of the line.
+     */
+    private static State lexLine(String text, int offset, State state, List<int[]> runs) {
+        int n = text.length();
+        int i = 0;
+        runs.add(new int[] { offset, offset, PLAIN }); // So that leading whitespace is reset as well.
+        while (i < n) {
+            switch (state) {
+                case COMMENT: {
+                    int end = text.indexOf("-->", i);
+                    int stop = end < 0 ? n : end + 3;
+                    addRun(runs, offset + i, offset + stop, COMMENT);
+                    i = stop;
+                    if (end >= 0) state = State.TEXT;
+                    break;
+                }
+                case VALUE_DQ:
+                case VALUE_SQ: {
+                    int end = text.indexOf(state == State.VALUE_DQ ? '"' : '\'', i);
+                    int stop = end < 0 ? n : end + 1;
+                    addRun(runs, offset + i, offset + stop, VALUE);
+                    i = stop;
+                    if (end >= 0) state = State.TAG;
+                    break;
+                }
+                case TAG: {
+                    char c = text.charAt(i);
+                    if (c == '>') {
+                        addRun(runs, offset + i, offset + i + 1, TAG);
+                        i++;
+                        state = State.TEXT;
+                    } else if ((c == '/' || c == '?') && i + 1 < n && text.charAt(i + 1) == '>') {
+                        addRun(runs, offset + i, offset + i + 2, TAG);
+                        i += 2;
+                        state = State.TEXT;
+                    } else if (c == '"' || c == '\'') {
+                        addRun(runs, offset + i, offset + i + 1, VALUE);
+                        i++;
+                        state = c == '"' ? State.VALUE_DQ : State.VALUE_SQ;
+                    } else if (isNameChar(c)) {
+                        int j = i;
+                        while (j < n && isNameChar(text.charAt(j))) j++;
+                        addRun(runs, offset + i, offset + j, ATTRIBUTE);
+                        i = j;
+                    } else {
+                        i++;
+                    }
+                    break;
+                }
+                default: {
+                    int lt = text.indexOf('<', i);
+                    if (lt < 0) {
+                        i = n;
+                    } else if (text.startsWith("<!--", lt)) {
+                        addRun(runs, offset + lt, offset + lt + 4, COMMENT);
+                        i = lt + 4;
+                        state = State.COMMENT;
+                    } else {
+                        int j = lt + 1;
+                        if (j < n && (text.charAt(j) == '/' || text.charAt(j) == '?' || text.charAt(j) == '!')) j++;
+                        while (j < n && isNameChar(text.charAt(j))) j++;
+                        addRun(runs, offset + lt, offset + j, TAG);
+                        i = j;
+                        state = State.TAG;
+                    }
+                }
+            }
+        }
+        addRun(runs, offset + n, offset + n, PLAIN);
+        return state;
+    }
+
+    /**
+     * Adds a run, filling the gap to the previous run with plain text and merging adjacent runs
+     * of the same style.
+     */
+    private static void addRun(List<int[]> runs, int start, int end, int style) {
+        int previousEnd = runs.isEmpty() ? -1 : runs.get(runs.size() - 1)[1];
+        if (previousEnd >= 0 && previousEnd < start) {
+            addRun(runs, previousEnd, start, PLAIN);
+        }
+        if (start >= end) return;
+        if (!runs.isEmpty()) {
+            int[] last = runs.get(runs.size() - 1);
+            if (last[2] == style && last[1] == start) {
+                last[1] = end;
+                return;
+            }
+        }
+        runs.add(new int[] { start, end, style });
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+    }
+}
@@ -0,0 +1,100 @@
+package de.mobilitystudio.config;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.swing.JComponent;
+import javax.swing.JTextPane;
+import javax.swing.ToolTipManager;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+
+/**
+ * A narrow gutter next to the XML editor that marks the lines of validation problems: red for
+ * errors, orange for warnings. Hovering a marker shows the messages of its line.
+ */
+final class XmlValidationGutter extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int WIDTH = 14;
+    private static final Color WARNING_COLOR = new Color(230, 140, 0);
+
+    private final JTextPane textPane;
+    private List<XmlConfigValidator.Problem> problems = Collections.emptyList();
+
+    XmlValidationGutter(JTextPane textPane) {
+        this.textPane = textPane;
+        ToolTipManager.sharedInstance().registerComponent(this);
+        // Follow the height of the text, so the markers scroll with it.
+        textPane.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                revalidate();
+                repaint();
+            }
+        });
+    }
+
+    void setProblems(List<XmlConfigValidator.Problem> problems) {
+        this.problems = problems;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(WIDTH, textPane.getPreferredSize().height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        for (XmlConfigValidator.Problem problem : problems) {
+            Rectangle2D bounds = lineBounds(problem.line());
+            if (bounds == null || (clip != null && !bounds.intersects(clip.x, clip.y, clip.width, clip.height))) continue;
+            int size = Math.min(WIDTH - 4, (int) bounds.getHeight() - 2);
+            int y = (int) (bounds.getY() + (bounds.getHeight() - size) / 2);
+            g.setColor(problem.error() ? Color.RED : WARNING_COLOR);
+            g.fillOval(2, y, size, size);
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        String text = problems.stream()
+                .filter(p -> {
+                    Rectangle2D bounds = lineBounds(p.line());
+                    return bounds != null && event.getY() >= bounds.getY() && event.getY() < bounds.getMaxY();
+                })
+                .map(p -> (p.error() ? "Error: " : "Warning: ") + escape(p.message()))
+                .collect(Collectors.joining("<br>"));
+        return text.isEmpty() ? null : "<html>" + text + "</html>";
+    }
+
+    private static String escape(String message) {
+        if (message == null) return "";
+        return message.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\n", "<br>");
+    }
+
+    /**
+     * Returns the bounds of the given (1-based) line in the text pane, or null if the line does
+     * not exist (any more).
+     */
+    private Rectangle2D lineBounds(int line) {
+        Element root = textPane.getDocument().getDefaultRootElement();
+        if (line < 1 || line > root.getElementCount()) return null;
+        try {
+            return textPane.modelToView2D(root.getElement(line - 1).getStartOffset());
+        } catch (BadLocationException e) {
+            return null;
+        }
+    }
+}
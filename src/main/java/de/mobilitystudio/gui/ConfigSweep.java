@@ -0,0 +1,307 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.ConfigWriter;
+import org.matsim.core.config.groups.ControllerConfigGroup;
+
+import de.mobilitystudio.config.ConfigCloner;
+import de.mobilitystudio.config.ConfigDiff;
+
+/**
+ * Writes one config file per combination of parameter values (full factorial), e.g. for
+ * calibration sweeps.
+ *
+ * <p>The sweep is given as text, one parameter per line:</p>
+ * <pre>
+ * # path = comma-separated values, or a range "from..to by step"
+ * qsim/flowCapacityFactor = 0.1, 0.2
+ * scoring/scoringParameters[null]/modeParams[car]/constant = -1..0 by 0.25
+ * routing/networkModes = "car", "car,ride"
+ * </pre>
+ * <p>The path is the module, the parameter sets (as {@code type[identifier]}, or just
+ * {@code type} for the first set of that type) and the parameter, like the paths of
+ * {@link ConfigDiff}. Values that contain a comma, such as lists of modes, are put in
+ * double quotes.</p>
+ *
+ * <p>The base config is loaded once. Each variant only copies the modules it changes, plus
+ * {@code controller} for its own output directory; all other modules are shared with the
+ * base config, which is only read. Variants are written in parallel next to the base config
+ * (so relative input paths stay valid), together with a {@code -sweep.csv} index.</p>
+ *
+ * @author ikaddoura
+ */
+final class ConfigSweep {
+
+    private static final Logger log = LogManager.getLogger(ConfigSweep.class);
+
+    /** More variants than this are almost certainly a typo in a range. */
+    static final int MAX_VARIANTS = 10000;
+
+    private static final String NUMBER = "([-+]?\\d*\\.?\\d+(?:[eE][-+]?\\d+)?)";
+    private static final Pattern RANGE = Pattern.compile(NUMBER + "\\s*\\.\\.\\s*" + NUMBER + "\\s+by\\s+" + NUMBER);
+
+    /** One swept parameter. */
+    record Dimension(String path, String module, List<String> sets, String param, List<String> values) { }
+
+    /** Result of a sweep, used for the summary dialog. */
+    record Result(File indexFile, List<File> configFiles) { }
+
+    static final String EXAMPLE = """
+            # One parameter per line: path = comma-separated values, or a range "from..to by step"
+            # Path: module[/setType[identifier]]*/parameter; all combinations are written.
+            # qsim/flowCapacityFactor = 0.1, 0.2
+            # scoring/scoringParameters[null]/modeParams[car]/constant = -1..0 by 0.25
+            # Values with commas in double quotes: routing/networkModes = "car", "car,ride"
+            """;
+
+    private ConfigSweep() { }
+
+    /**
+     * Parse a sweep spec. Lines starting with {@code #} and empty lines are ignored.
+     */
+    static List<Dimension> parse(String spec) {
+        List<Dimension> dimensions = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : spec.split("\\R")) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int eq = line.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected 'path = values', but was: " + line);
+            }
+            String path = line.substring(0, eq).strip();
+            String[] segments = path.split("/");
+            if (segments.length < 2) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": the path needs at least a module and a parameter: " + path);
+            }
+            List<String> values = parseValues(line.substring(eq + 1).strip(), lineNumber);
+            dimensions.add(new Dimension(path, segments[0], List.of(segments).subList(1, segments.length - 1),
+                    segments[segments.length - 1], values));
+        }
+        return dimensions;
+    }
+
+    private static List<String> parseValues(String text, int lineNumber) {
+        List<String> values = new ArrayList<>();
+        Matcher range = RANGE.matcher(text);
+        if (range.matches()) {
+            BigDecimal from = new BigDecimal(range.group(1));
+            BigDecimal to = new BigDecimal(range.group(2));
+            BigDecimal step = new BigDecimal(range.group(3));
+            if (step.signum() <= 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": the step of a range must be positive.");
+            }
+            if (from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": empty range, " + range.group(1)
+                        + " is greater than " + range.group(2) + ".");
+            }
+            // Decimal arithmetic, so that 0.1..0.3 by 0.05 ends with 0.3 and not 0.30000000000000004.
+            for (BigDecimal v = from; v.compareTo(to) <= 0; v = v.add(step)) {
+                if (values.size() == MAX_VARIANTS) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": the range has more than "
+                            + MAX_VARIANTS + " values.");
+                }
+                values.add(v.stripTrailingZeros().toPlainString());
+            }
+            return values;
+        }
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ',';
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                if (!value.toString().isBlank()) values.add(value.toString().strip());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": missing closing quote.");
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": no values.");
+        }
+        return values;
+    }
+
+    /**
+     * Write all variants of the given config.
+     *
+     * @param configFile the base config
+     * @param spec       the sweep, see the class comment
+     * @return the written config files and the index file
+     */
+    static Result generate(File configFile, String spec) throws IOException {
+        List<Dimension> dimensions = parse(spec);
+        if (dimensions.isEmpty()) {
+            throw new IllegalArgumentException("The sweep does not contain any parameter.");
+        }
+        long count = 1;
+        for (Dimension d : dimensions) {
+            count *= d.values().size();
+            if (count > MAX_VARIANTS) {
+                throw new IllegalArgumentException("The sweep has more than " + MAX_VARIANTS + " variants.");
+            }
+        }
+        int variants = (int) count;
+
+        Config base = ConfigUtils.loadConfig(configFile.getAbsolutePath());
+
+        // Check every value once on a scratch copy, before writing hundreds of files.
+        Set<String> changedModules = new HashSet<>();
+        for (Dimension d : dimensions) {
+            ConfigGroup module = base.getModules().get(d.module());
+            if (module == null) {
+                throw new IllegalArgumentException("The config has no module '" + d.module() + "' (" + d.path() + ").");
+            }
+            ConfigGroup scratch = resolve(ConfigCloner.copy(module), d);
+            for (String value : d.values()) {
+                try {
+                    scratch.addParam(d.param(), value);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Invalid value '" + value + "' for " + d.path() + ": " + e.getMessage(), e);
+                }
+            }
+            changedModules.add(d.module());
+        }
+        String baseOutputDirectory = base.controller().getOutputDirectory();
+        boolean sweepsOutputDirectory = dimensions.stream()
+                .anyMatch(d -> d.module().equals(ControllerConfigGroup.GROUP_NAME) && d.param().equals("outputDirectory"));
+        if (!sweepsOutputDirectory) {
+            changedModules.add(ControllerConfigGroup.GROUP_NAME);
+        }
+
+        File outDir = configFile.getAbsoluteFile().getParentFile();
+        String baseName = PopulationSampler.stripXmlExtension(configFile.getName());
+        String format = "%0" + Math.max(3, String.valueOf(variants).length()) + "d";
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < variants; i++) {
+            files.add(new File(outDir, baseName + "-sweep-" + String.format(format, i + 1) + ".xml"));
+        }
+
+        log.info("Writing " + variants + " config variants of " + configFile + " to " + outDir);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, variants).parallel().forEach(i -> {
+            try {
+                Config variant = new Config();
+                for (ConfigGroup module : base.getModules().values()) {
+                    variant.addModule(changedModules.contains(module.getName()) ? ConfigCloner.copy(module) : module);
+                }
+                variant.setContext(base.getContext());
+                int[] choice = choice(dimensions, i);
+                for (int d = 0; d < dimensions.size(); d++) {
+                    Dimension dimension = dimensions.get(d);
+                    resolve(variant.getModules().get(dimension.module()), dimension)
+                            .addParam(dimension.param(), dimension.values().get(choice[d]));
+                }
+                if (!sweepsOutputDirectory) {
+                    variant.getModules().get(ControllerConfigGroup.GROUP_NAME)
+                            .addParam("outputDirectory", outputDirectory(baseOutputDirectory, files.get(i)));
+                }
+                new ConfigWriter(variant).write(files.get(i).getAbsolutePath());
+            } catch (RuntimeException e) {
+                failures.add(files.get(i).getName() + ": " + e.getMessage());
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new IOException(failures.size() + " of " + variants + " variants could not be written, e.g. " + failures.peek());
+        }
+
+        File indexFile = new File(outDir, baseName + "-sweep.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            StringBuilder header = new StringBuilder("configFile;outputDirectory");
+            for (Dimension d : dimensions) header.append(';').append(d.path());
+            writer.write(header.toString());
+            writer.newLine();
+            for (int i = 0; i < variants; i++) {
+                StringBuilder row = new StringBuilder(files.get(i).getName());
+                row.append(';').append(sweepsOutputDirectory ? "" : outputDirectory(baseOutputDirectory, files.get(i)));
+                int[] choice = choice(dimensions, i);
+                for (int d = 0; d < dimensions.size(); d++) row.append(';').append(dimensions.get(d).values().get(choice[d]));
+                writer.write(row.toString());
+                writer.newLine();
+            }
+        }
+        log.info("Wrote " + variants + " config variants and the index " + indexFile);
+        return new Result(indexFile, files);
+    }
+
+    /** The value index per dimension of the {@code i}-th variant; the last dimension varies fastest. */
+    private static int[] choice(List<Dimension> dimensions, int i) {
+        int[] choice = new int[dimensions.size()];
+        for (int d = dimensions.size() - 1; d >= 0; d--) {
+            int n = dimensions.get(d).values().size();
+            choice[d] = i % n;
+            i /= n;
+        }
+        return choice;
+    }
+
+    private static String outputDirectory(String baseOutputDirectory, File variantFile) {
+        return PopulationSampler.suffixedOutputDirectory(baseOutputDirectory,
+                "-" + PopulationSampler.stripXmlExtension(variantFile.getName()));
+    }
+
+    /**
+     * Find the group of the given module that holds the swept parameter.
+     */
+    private static ConfigGroup resolve(ConfigGroup module, Dimension d) {
+        ConfigGroup group = module;
+        for (String segment : d.sets()) {
+            int bracket = segment.indexOf('[');
+            String type = bracket < 0 ? segment : segment.substring(0, bracket);
+            String id = bracket < 0 || !segment.endsWith("]") ? null : segment.substring(bracket + 1, segment.length() - 1);
+            Collection<? extends ConfigGroup> sets = group.getParameterSets().get(type);
+            ConfigGroup next = null;
+            if (sets != null) {
+                for (ConfigGroup set : sets) {
+                    if (id == null || id.equals(String.valueOf(ConfigDiff.setIdentifier(set)))) {
+                        next = set;
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                throw new IllegalArgumentException("No parameter set '" + segment + "' found for " + d.path() + ".");
+            }
+            group = next;
+        }
+        return group;
+    }
+}
@@ -0,0 +1,266 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Latency and throughput of the Copilot's model calls and agent tools, to compare providers
+ * (hosted, Ollama, embedded JLama) on the user's hardware.
+ *
+ * <p>Every model call is wrapped in a {@link Measurement}: it sees the streamed tokens (for
+ * the time to first token) and the token usage reported by the provider; where a provider
+ * reports none, tokens are estimated as characters / 4, like the context size in the panel.
+ * The time to the first token is taken as prefill time (including the network round trip)
+ * and the rest as generation time, unless the provider reports both (JLama).</p>
+ *
+ * <p>The last {@value #MAX_RECORDS} records are kept in memory for this session and can be
+ * exported as CSV. Thread-safe.</p>
+ *
+ * @author ikaddoura
+ */
+final class CopilotMetrics {
+
+    static final int MAX_RECORDS = 2000;
+    /** Number of most recent calls per provider/model the summary is computed over. */
+    static final int SUMMARY_WINDOW = 20;
+
+    enum Kind { CHAT, AGENT_STEP, TOOL }
+
+    /**
+     * One model call or tool execution; times in milliseconds, -1 if not applicable.
+     * {@code tokensCached} are the input tokens served from the provider's prompt cache.
+     */
+    record Record(long start, Kind kind, String provider, String model, String name,
+                  long ttftMillis, long prefillMillis, long generationMillis, long totalMillis,
+                  int tokensIn, int tokensCached, int tokensOut, boolean tokensEstimated, String error) {
+
+        double tokensPerSecond() {
+            return generationMillis > 0 && tokensOut > 1 ? tokensOut * 1000.0 / generationMillis : 0;
+        }
+    }
+
+    private final Deque<Record> records = new ArrayDeque<>();
+
+    /**
+     * Starts measuring a model call. {@code promptChars} is used to estimate the input tokens
+     * if the provider does not report them.
+     */
+    Measurement start(Kind kind, String provider, String model, int promptChars, Consumer<String> onToken) {
+        return new Measurement(kind, provider, model, promptChars, onToken);
+    }
+
+    /** Records the execution of an agent tool. */
+    void recordTool(String toolName, long startMillis, long durationMillis, String error) {
+        add(new Record(startMillis, Kind.TOOL, "", "", toolName, -1, -1, -1, durationMillis, 0, 0, 0, false, error));
+    }
+
+    private void add(Record r) {
+        synchronized (records) {
+            records.addLast(r);
+            while (records.size() > MAX_RECORDS) records.removeFirst();
+        }
+    }
+
+    List<Record> records() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /** The last record of a model call, or null. */
+    Record lastCall() {
+        synchronized (records) {
+            for (var it = records.descendingIterator(); it.hasNext(); ) {
+                Record r = it.next();
+                if (r.kind() != Kind.TOOL) return r;
+            }
+        }
+        return null;
+    }
+
+    /** Short form of a record for the status line, e.g. "TTFT 0.8 s · 42 tok/s · 2,100→350 tok". */
+    static String shortSummary(Record r) {
+        if (r == null) return "";
+        StringBuilder sb = new StringBuilder();
+        if (r.ttftMillis() >= 0) sb.append(String.format("TTFT %.1f s", r.ttftMillis() / 1000.0));
+        if (r.tokensPerSecond() > 0) sb.append(String.format(" · %.0f tok/s", r.tokensPerSecond()));
+        sb.append(String.format(" · %s%,d→%,d tok", r.tokensEstimated() ? "~" : "", r.tokensIn(), r.tokensOut()));
+        if (r.tokensCached() > 0) sb.append(String.format(" (%,d cached)", r.tokensCached()));
+        return sb.toString();
+    }
+
+    /**
+     * Rolling averages over the last {@value #SUMMARY_WINDOW} successful calls per provider and
+     * model, and per tool.
+     */
+    String report() {
+        Map<String, List<Record>> calls = new LinkedHashMap<>();
+        Map<String, List<Record>> tools = new LinkedHashMap<>();
+        for (Record r : records()) {
+            if (r.error() != null) continue;
+            if (r.kind() == Kind.TOOL) tools.computeIfAbsent(r.name(), k -> new ArrayList<>()).add(r);
+            else calls.computeIfAbsent(r.provider() + " / " + r.model(), k -> new ArrayList<>()).add(r);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-50s %5s %9s %11s %9s %9s %8s %s%n",
+                "Provider / model", "calls", "TTFT s", "prefill s", "gen s", "tok/s", "cached", "tok in/out"));
+        for (Map.Entry<String, List<Record>> e : calls.entrySet()) {
+            List<Record> window = tail(e.getValue());
+            double ttft = 0, prefill = 0, gen = 0, in = 0, cached = 0, out = 0, genTps = 0;
+            for (Record r : window) {
+                ttft += Math.max(r.ttftMillis(), 0);
+                prefill += Math.max(r.prefillMillis(), 0);
+                gen += Math.max(r.generationMillis(), 0);
+                in += r.tokensIn();
+                cached += r.tokensCached();
+                out += r.tokensOut();
+                genTps += r.tokensPerSecond();
+            }
+            int n = window.size();
+            sb.append(String.format("%-50s %5d %9.2f %11.2f %9.2f %9.1f %7.0f%% %.0f/%.0f%n",
+                    shorten(e.getKey(), 50), e.getValue().size(), ttft / n / 1000, prefill / n / 1000,
+                    gen / n / 1000, genTps / n, in > 0 ? 100 * cached / in : 0, in / n, out / n));
+        }
+        if (!tools.isEmpty()) {
+            sb.append(String.format("%n%-50s %5s %9s%n", "Agent tool", "calls", "avg s"));
+            for (Map.Entry<String, List<Record>> e : tools.entrySet()) {
+                List<Record> window = tail(e.getValue());
+                double total = 0;
+                for (Record r : window) total += r.totalMillis();
+                sb.append(String.format("%-50s %5d %9.2f%n", e.getKey(), e.getValue().size(),
+                        total / window.size() / 1000));
+            }
+        }
+        if (calls.isEmpty() && tools.isEmpty()) sb.append("(no calls yet)\n");
+        return sb.toString();
+    }
+
+    private static List<Record> tail(List<Record> list) {
+        return list.subList(Math.max(0, list.size() - SUMMARY_WINDOW), list.size());
+    }
+
+    private static String shorten(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max - 1) + "…";
+    }
+
+    /** Writes all records as a semicolon-separated CSV file. */
+    void exportCsv(Path file) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("start;kind;provider;model;name;ttftMs;prefillMs;generationMs;totalMs;"
+                    + "tokensIn;tokensCached;tokensOut;tokensEstimated;tokensPerSecond;error");
+            w.newLine();
+            for (Record r : records()) {
+                w.write(String.join(";", Instant.ofEpochMilli(r.start()).toString(), r.kind().name(),
+                        csv(r.provider()), csv(r.model()), csv(r.name()),
+                        Long.toString(r.ttftMillis()), Long.toString(r.prefillMillis()),
+                        Long.toString(r.generationMillis()), Long.toString(r.totalMillis()),
+                        Integer.toString(r.tokensIn()), Integer.toString(r.tokensCached()),
+                        Integer.toString(r.tokensOut()),
+                        Boolean.toString(r.tokensEstimated()),
+                        String.format(java.util.Locale.ROOT, "%.2f", r.tokensPerSecond()),
+                        csv(r.error() == null ? "" : r.error())));
+                w.newLine();
+            }
+        }
+    }
+
+    private static String csv(String s) {
+        if (s.indexOf(';') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"").replace('\n', ' ') + '"';
+    }
+
+    /**
+     * Measures one model call. Pass every streamed piece of text to {@link #token(String)}
+     * (it is forwarded to the consumer given at the start), report usage if the provider
+     * sends it, and call {@link #finish} once.
+     */
+    final class Measurement {
+        private final long startMillis = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final Kind kind;
+        private final String provider;
+        private final String model;
+        private final int promptChars;
+        private final Consumer<String> onToken;
+        private volatile long firstTokenNanos = 0;
+        private volatile int outputChars = 0;
+        private volatile int tokensIn = -1;
+        private volatile int tokensOut = -1;
+        private volatile int tokensCached = 0;
+        private volatile long prefillMillis = -1;
+        private volatile long generationMillis = -1;
+
+        private Measurement(Kind kind, String provider, String model, int promptChars, Consumer<String> onToken) {
+            this.kind = kind;
+            this.provider = provider;
+            this.model = model;
+            this.promptChars = promptChars;
+            this.onToken = onToken;
+        }
+
+        void token(String text) {
+            if (firstTokenNanos == 0) firstTokenNanos = System.nanoTime();
+            outputChars += text.length();
+            if (onToken != null) onToken.accept(text);
+        }
+
+        /** Token counts reported by the provider; values {@code < 0} are ignored. */
+        void usage(int in, int out) {
+            if (in >= 0) tokensIn = in;
+            if (out >= 0) tokensOut = out;
+        }
+
+        /** Input tokens read from the provider's prompt cache (included in the input tokens). */
+        void cachedTokens(int cached) {
+            if (cached >= 0) tokensCached = cached;
+        }
+
+        /** Prefill and generation time, for providers that measure them themselves. */
+        void timing(long prefillMillis, long generationMillis) {
+            this.prefillMillis = prefillMillis;
+            this.generationMillis = generationMillis;
+        }
+
+        /**
+         * Records the call. {@code outputText} is used for the token estimate if nothing was
+         * streamed (e.g. a tool-call-only answer); {@code error} is null on success.
+         */
+        Record finish(String outputText, Throwable error) {
+            long end = System.nanoTime();
+            long total = (end - startNanos) / 1_000_000;
+            long ttft = firstTokenNanos == 0 ? -1 : (firstTokenNanos - startNanos) / 1_000_000;
+            long prefill = prefillMillis >= 0 ? prefillMillis : ttft >= 0 ? ttft : total;
+            long generation = generationMillis >= 0 ? generationMillis : ttft >= 0 ? total - ttft : -1;
+            int chars = outputChars > 0 ? outputChars : outputText == null ? 0 : outputText.length();
+            boolean estimated = tokensIn < 0 || tokensOut < 0;
+            Record r = new Record(startMillis, kind, provider, model, kind == Kind.CHAT ? "chat" : "agent step",
+                    ttft, prefill, generation, total,
+                    tokensIn >= 0 ? tokensIn : promptChars / 4, tokensCached, tokensOut >= 0 ? tokensOut : chars / 4,
+                    estimated, error == null ? null : String.valueOf(error.getMessage()));
+            add(r);
+            return r;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * On-disk cache of Copilot chat answers, so that asking the same question again (typically
+ * "Explain last error" for a well-known failure) answers instantly and without an API call.
+ *
+ * <p>The key is a SHA-256 hash of provider, model, system prompt and the conversation so far.
+ * Before hashing, the text is normalized: log timestamps, directories of absolute paths and
+ * identity hash codes are replaced by placeholders and whitespace is collapsed, so the same
+ * error in another run or output directory hits the same entry.</p>
+ *
+ * <p>Each answer is one small JSON file in {@code ~/.matsim/copilot-cache/}. Entries expire
+ * after {@link #DEFAULT_TTL}; beyond {@link #DEFAULT_MAX_BYTES}, the least recently used
+ * entries are deleted. The cache is best effort: I/O errors are logged and treated as a
+ * miss.</p>
+ *
+ * @author ikaddoura
+ */
+final class CopilotResponseCache {
+
+    private static final Logger log = LogManager.getLogger(CopilotResponseCache.class);
+    private static final ObjectMapper M = new ObjectMapper();
+
+    static final Path DEFAULT_DIR = Path.of(System.getProperty("user.home"), ".matsim", "copilot-cache");
+    static final Duration DEFAULT_TTL = Duration.ofDays(7);
+    static final long DEFAULT_MAX_BYTES = 20L << 20;
+
+    /**
+     * Dates with an optional time, and times at the start of a line as in log4j output. Other
+     * times are kept, as they are config values such as {@code openingTime} or {@code endTime}.
+     */
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "\\d{4}-\\d{2}-\\d{2}(?:[T ]\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?(?:Z|[+-]\\d{2}:?\\d{2})?)?"
+                    + "|^\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d+)?\\b", Pattern.MULTILINE);
+    /** The directory part of Unix ({@code /a/b/}) and Windows ({@code C:\a\b\}) absolute paths. */
+    private static final Pattern DIRECTORY = Pattern.compile(
+            "(?<![\\w.])(?:[A-Za-z]:)?(?:[/\\\\][\\w.@~+-]+)+[/\\\\]");
+    private static final Pattern HASH_CODE = Pattern.compile("@[0-9a-f]{5,}\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** A cached answer. */
+    record Hit(String reply, Instant created) { }
+
+    private final Path dir;
+    private final Duration ttl;
+    private final long maxBytes;
+
+    CopilotResponseCache() {
+        this(DEFAULT_DIR, DEFAULT_TTL, DEFAULT_MAX_BYTES);
+    }
+
+    CopilotResponseCache(Path dir, Duration ttl, long maxBytes) {
+        this.dir = dir;
+        this.ttl = ttl;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cache key of a chat request: the history includes the latest user turn, with the
+     * log and config context that was attached to it. It is the stored history, without the
+     * config parameter docs sent along with the latest turn
+     * ({@link MatsimKnowledgeBase#relevantConfigDocs}): they follow from the question and the
+     * log, but are missing while the doc index is still being built.
+     */
+    static String key(String provider, String model, String systemPrompt, List<Map.Entry<String, String>> history) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            update(sha, provider);
+            update(sha, model);
+            update(sha, normalize(systemPrompt));
+            for (Map.Entry<String, String> e : history) {
+                update(sha, e.getKey());
+                update(sha, normalize(e.getValue()));
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest sha, String s) {
+        sha.update(s.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+    }
+
+    /** Removes what differs between two runs with the same problem (times, directories, hash codes). */
+    static String normalize(String text) {
+        String s = TIMESTAMP.matcher(text).replaceAll("<time>");
+        s = DIRECTORY.matcher(s).replaceAll("<dir>/");
+        s = HASH_CODE.matcher(s).replaceAll("@<hash>");
+        return WHITESPACE.matcher(s).replaceAll(" ").strip();
+    }
+
+    /** The cached answer for the key, or null if there is none or it has expired. */
+    Hit get(String key) {
+        Path file = dir.resolve(key + ".json");
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            JsonNode entry = M.readTree(file.toFile());
+            Instant created = Instant.ofEpochMilli(entry.path("created").asLong(0));
+            if (created.plus(ttl).isBefore(Instant.now())) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            // The modification time is the last access, for the LRU eviction.
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return new Hit(entry.path("reply").asText(), created);
+        } catch (IOException e) {
+            log.warn("Could not read the cached Copilot answer " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Stores an answer and evicts old entries if the cache has become too large. */
+    void put(String key, String provider, String model, String reply) {
+        ObjectNode entry = M.createObjectNode();
+        entry.put("created", System.currentTimeMillis());
+        entry.put("provider", provider);
+        entry.put("model", model);
+        entry.put("reply", reply);
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "answer-", ".tmp");
+            M.writeValue(tmp.toFile(), entry);
+            Files.move(tmp, dir.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            log.warn("Could not cache the Copilot answer in " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /** Deletes all cached answers. */
+    void clear() throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    /** Deletes expired entries, then the least recently used ones until the cache fits. */
+    private void evict() throws IOException {
+        record Entry(Path file, long size, long lastAccess) { }
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        long expired = System.currentTimeMillis() - ttl.toMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                long lastAccess = Files.getLastModifiedTime(file).toMillis();
+                if (lastAccess < expired) {
+                    // Not used within the TTL, so it has certainly expired.
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Entry e = new Entry(file, Files.size(file), lastAccess);
+                entries.add(e);
+                total += e.size();
+            }
+        }
+        if (total <= maxBytes) return;
+        entries.sort(Comparator.comparingLong(Entry::lastAccess));
+        for (Entry e : entries) {
+            if (total <= maxBytes) break;
+            Files.deleteIfExists(e.file());
+            total -= e.size();
+        }
+    }
+}
@@ -19,7 +19,10 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +31,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
 
 /**
  * Multi-step "agent" loop on top of Google's Gemini function-calling API.
@@ -36,6 +40,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * of tool calls / tool results. It iterates until either the model returns a final
  * text answer, the maximum number of iterations is reached, or it is cancelled.</p>
  *
+ * <p>System instruction and tool declarations are the same in every request of the loop.
+ * They are put into a Gemini context cache ({@code cachedContents}) where the model and
+ * tier support it, so they are neither resent nor billed in full on every iteration;
+ * otherwise they open every request, which lets Gemini's implicit caching match them.</p>
+ *
  * @author ikaddoura / Claude
  */
 final class GeminiAgent {
@@ -45,6 +54,22 @@ final class GeminiAgent {
 
     private static final int MAX_ITERATIONS = 20;
 
+    /** The {@code tools} array with all function declarations, serialized once. */
+    private static final String TOOLS_JSON = toolsJson();
+    private static final String TOOL_CONFIG_JSON = "{\"functionCallingConfig\":{\"mode\":\"AUTO\"}}";
+
+    /**
+     * Lifetime of a context cache with system instruction and tools. It is shared by all turns
+     * of all conversations with the same model, key and system prompt, and recreated when it
+     * has expired.
+     */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(15);
+
+    /** A context cache; an empty name means caching is not available (until {@code expiresAt}). */
+    private record CachedContent(String name, long expiresAt) { }
+
+    private static final Map<String, CachedContent> CACHED_CONTENTS = new ConcurrentHashMap<>();
+
     /** Callback notified about progress events; runs on the worker thread. */
     interface ProgressListener {
         /** Called when the model emits a tool call (after parsing, before execution). */
@@ -53,6 +78,11 @@ final class GeminiAgent {
         void onToolResult(String name, JsonNode result);
         /** Called for free-text "thoughts" the model emits between tool calls. */
         default void onModelText(String text) { }
+        /**
+         * Called for every streamed piece of model text, before the response is complete. The
+         * text of a response that ends in tool calls is passed to {@link #onModelText} again.
+         */
+        default void onModelToken(String token) { }
     }
 
     private final HttpClient http;
@@ -61,15 +91,17 @@ final class GeminiAgent {
     private final String apiKey;
     private final MatsimAgentTools tools;
     private final String systemPrompt;
+    private final CopilotMetrics metrics;
 
     GeminiAgent(HttpClient http, String endpointTemplate, String model, String apiKey,
-                MatsimAgentTools tools, String systemPrompt) {
+                MatsimAgentTools tools, String systemPrompt, CopilotMetrics metrics) {
         this.http = http;
         this.endpointTemplate = endpointTemplate;
         this.model = model;
         this.apiKey = apiKey;
         this.tools = tools;
         this.systemPrompt = systemPrompt;
+        this.metrics = metrics != null ? metrics : new CopilotMetrics();
     }
 
     /**
@@ -93,7 +125,7 @@ final class GeminiAgent {
             // are needed verbatim, the rest can be reduced to a tiny summary. This is
             // by far the biggest token-saver in the agent loop.
             compactOldToolResults(contents);
-            ObjectNode response = callGemini(contents);
+            ObjectNode response = callGemini(contents, listener);
 
             // Pull the first candidate's content (which is itself a "content" part with a "parts" array).
             JsonNode candidates = response.path("candidates");
@@ -158,62 +190,191 @@ final class GeminiAgent {
 
     // -------------------------------------------------------------------- HTTP
 
-    private ObjectNode callGemini(List<ObjectNode> contents) throws IOException, InterruptedException {
-        String endpoint = endpointTemplate.replace("{model}", model) + "?key=" + apiKey;
+    /**
+     * Streams one model response and assembles it into the shape of a non-streamed
+     * {@code generateContent} response: {@code {"candidates":[{"content":{"role":"model","parts":[...]}}]}}.
+     * Text is passed to the listener as it arrives; function calls always come in one piece.
+     */
+    private ObjectNode callGemini(List<ObjectNode> contents, ProgressListener listener)
+            throws IOException, InterruptedException {
+        String cachedContent = cachedContent();
+        String bodyStr = requestBody(contents, cachedContent);
+        CopilotMetrics.Measurement m = metrics.start(CopilotMetrics.Kind.AGENT_STEP, "Google Gemini", model,
+                bodyStr.length(), listener == null ? null : listener::onModelToken);
+        try {
+            ObjectNode response = send(bodyStr, m, cachedContent != null);
+            if (response == null) {
+                // The context cache is gone (deleted or expired early): send everything again.
+                CACHED_CONTENTS.remove(cacheKey());
+                response = send(requestBody(contents, null), m, false);
+            }
+            m.finish(response.toString(), null);
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            m.finish(null, e);
+            throw e;
+        }
+    }
 
+    /**
+     * The request body. With a context cache, system instruction and tools are in the cache
+     * and must not be repeated; otherwise they come first, identical in every request, so
+     * that Gemini's implicit caching can reuse them.
+     */
+    private String requestBody(List<ObjectNode> contents, String cachedContent) throws IOException {
         ObjectNode body = M.createObjectNode();
-
-        // System instruction
-        ObjectNode sys = M.createObjectNode();
-        ArrayNode sysParts = M.createArrayNode();
-        sysParts.add(M.createObjectNode().put("text", systemPrompt));
-        sys.set("parts", sysParts);
-        body.set("systemInstruction", sys);
-
-        // Conversation
+        if (cachedContent != null) {
+            body.put("cachedContent", cachedContent);
+        } else {
+            body.set("systemInstruction", systemInstruction());
+            body.putRawValue("tools", new RawValue(TOOLS_JSON));
+            body.putRawValue("toolConfig", new RawValue(TOOL_CONFIG_JSON));
+        }
         ArrayNode contentsArr = M.createArrayNode();
         for (ObjectNode c : contents) contentsArr.add(c);
         body.set("contents", contentsArr);
+        return M.writeValueAsString(body);
+    }
 
-        // Tools
-        ArrayNode toolsArr = M.createArrayNode();
-        ObjectNode toolWrapper = M.createObjectNode();
-        ArrayNode declarations = M.createArrayNode();
-        for (MatsimAgentTools.ToolSpec t : MatsimAgentTools.toolSpecs()) {
-            ObjectNode decl = M.createObjectNode();
-            decl.put("name", t.name);
-            decl.put("description", t.description);
-            decl.set("parameters", t.parameters);
-            declarations.add(decl);
+    private ObjectNode systemInstruction() {
+        ObjectNode sys = M.createObjectNode();
+        sys.putArray("parts").addObject().put("text", systemPrompt);
+        return sys;
+    }
+
+    private String cacheKey() {
+        return model + '\n' + Integer.toHexString(apiKey.hashCode()) + '\n' + Integer.toHexString(systemPrompt.hashCode());
+    }
+
+    /**
+     * The name of a context cache holding system instruction and tools, created on first use, or
+     * null if there is none. Gemini only caches prompts above a minimum size and not on every
+     * tier; if creating the cache fails, that is remembered for an hour and the requests rely
+     * on implicit caching instead.
+     */
+    private String cachedContent() throws InterruptedException {
+        int models = endpointTemplate.indexOf("/models/");
+        if (models < 0 || apiKey == null || apiKey.isBlank()) return null;
+        String key = cacheKey();
+        CachedContent cached = CACHED_CONTENTS.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expiresAt() > now + 60_000) {
+            return cached.name().isEmpty() ? null : cached.name();
         }
-        toolWrapper.set("functionDeclarations", declarations);
-        toolsArr.add(toolWrapper);
-        body.set("tools", toolsArr);
-
-        ObjectNode toolConfig = M.createObjectNode();
-        ObjectNode fcc = M.createObjectNode();
-        fcc.put("mode", "AUTO");
-        toolConfig.set("functionCallingConfig", fcc);
-        body.set("toolConfig", toolConfig);
-
-        String bodyStr = M.writeValueAsString(body);
-        HttpRequest req = HttpRequest.newBuilder(URI.create(endpoint))
+        ObjectNode body = M.createObjectNode();
+        body.put("model", "models/" + model);
+        body.set("systemInstruction", systemInstruction());
+        body.putRawValue("tools", new RawValue(TOOLS_JSON));
+        body.putRawValue("toolConfig", new RawValue(TOOL_CONFIG_JSON));
+        body.put("ttl", CACHE_TTL.toSeconds() + "s");
+        try {
+            HttpRequest req = HttpRequest.newBuilder(URI.create(
+                            endpointTemplate.substring(0, models) + "/cachedContents?key=" + apiKey))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(M.writeValueAsString(body))).build();
+            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            String name = resp.statusCode() / 100 == 2 ? M.readTree(resp.body()).path("name").asText("") : "";
+            if (name.isEmpty()) {
+                log.info("Gemini context caching not used for " + model + " (HTTP " + resp.statusCode() + "): "
+                        + MatsimCopilotPanel.formatGeminiError(model, resp.statusCode(), resp.body()));
+                cached = new CachedContent("", now + Duration.ofHours(1).toMillis());
+            } else {
+                cached = new CachedContent(name, now + CACHE_TTL.toMillis());
+            }
+        } catch (IOException e) {
+            log.info("Gemini context caching not used for " + model + ": " + e.getMessage());
+            cached = new CachedContent("", now + Duration.ofHours(1).toMillis());
+        }
+        CACHED_CONTENTS.put(key, cached);
+        return cached.name().isEmpty() ? null : cached.name();
+    }
+
+    /**
+     * Sends the request and assembles the streamed response; text is passed on through the
+     * measurement. Returns null instead of failing on a client error if {@code retryWithoutCache}
+     * is set.
+     */
+    private ObjectNode send(String bodyStr, CopilotMetrics.Measurement m, boolean retryWithoutCache)
+            throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(
+                        MatsimCopilotPanel.streamingGeminiEndpoint(endpointTemplate, model, apiKey)))
                 .timeout(Duration.ofSeconds(180))
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(bodyStr)).build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<Stream<String>> resp = ServerSentEvents.send(http, req);
         if (resp.statusCode() / 100 != 2) {
-            throw new IOException(MatsimCopilotPanel.formatGeminiError(model, resp.statusCode(), resp.body()));
+            String respBody = ServerSentEvents.body(resp);
+            if (retryWithoutCache && resp.statusCode() / 100 == 4 && resp.statusCode() != 429) {
+                log.info("Request with cached content failed, retrying without: " + respBody);
+                return null;
+            }
+            throw new IOException(MatsimCopilotPanel.formatGeminiError(model, resp.statusCode(), respBody));
         }
-        JsonNode parsed = M.readTree(resp.body());
-        if (!(parsed instanceof ObjectNode)) {
-            throw new IOException("Unexpected Gemini response (not an object): " + resp.body());
+        ArrayNode parts = M.createArrayNode();
+        JsonNode[] lastEvent = new JsonNode[1];
+        ServerSentEvents.forEachEvent(resp, event -> {
+            if (event.has("error")) {
+                throw new IOException(MatsimCopilotPanel.formatGeminiError(model,
+                        event.path("error").path("code").asInt(500), event.toString()));
+            }
+            lastEvent[0] = event;
+            // Every chunk carries the usage so far; the last one has the totals.
+            JsonNode usage = event.path("usageMetadata");
+            if (usage.isObject()) {
+                m.usage(usage.path("promptTokenCount").asInt(-1),
+                        usage.path("candidatesTokenCount").asInt(0) + usage.path("thoughtsTokenCount").asInt(0));
+                m.cachedTokens(usage.path("cachedContentTokenCount").asInt(0));
+            }
+            for (JsonNode part : event.path("candidates").path(0).path("content").path("parts")) {
+                if (!(part instanceof ObjectNode)) continue;
+                ObjectNode last = parts.isEmpty() ? null : (ObjectNode) parts.get(parts.size() - 1);
+                if (part.has("text") && !part.path("thought").asBoolean(false)) {
+                    String text = part.get("text").asText();
+                    if (!text.isEmpty()) m.token(text);
+                    // Merge consecutive text chunks into one part, keeping a thought signature if any.
+                    if (last != null && last.has("text") && !last.path("thought").asBoolean(false)) {
+                        last.put("text", last.get("text").asText() + text);
+                        if (part.has("thoughtSignature")) last.set("thoughtSignature", part.get("thoughtSignature"));
+                        continue;
+                    }
+                }
+                parts.add(((ObjectNode) part).deepCopy());
+            }
+        });
+        if (parts.isEmpty()) {
+            throw new IOException("Gemini returned no candidates: " + lastEvent[0]);
         }
-        return (ObjectNode) parsed;
+        ObjectNode content = M.createObjectNode();
+        content.put("role", "model");
+        content.set("parts", parts);
+        ObjectNode candidate = M.createObjectNode();
+        candidate.set("content", content);
+        ObjectNode response = M.createObjectNode();
+        response.set("candidates", M.createArrayNode().add(candidate));
+        return response;
     }
 
     // -------------------------------------------------------------------- helpers
 
+    private static String toolsJson() {
+        ArrayNode declarations = M.createArrayNode();
+        for (MatsimAgentTools.ToolSpec t : MatsimAgentTools.toolSpecs()) {
+            ObjectNode decl = M.createObjectNode();
+            decl.put("name", t.name);
+            decl.put("description", t.description);
+            decl.set("parameters", t.parameters);
+            declarations.add(decl);
+        }
+        ArrayNode toolsArr = M.createArrayNode();
+        toolsArr.addObject().set("functionDeclarations", declarations);
+        try {
+            return M.writeValueAsString(toolsArr);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the tool specs", e);
+        }
+    }
+
     static ObjectNode userPart(String text) {
         ObjectNode c = M.createObjectNode();
         c.put("role", "user");
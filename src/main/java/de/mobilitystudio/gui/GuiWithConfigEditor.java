@@ -20,22 +20,19 @@
 package de.mobilitystudio.gui;
 
 import java.awt.Desktop;
+import java.awt.Font;
 import java.awt.Image;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
+import java.util.function.Consumer;
 
 import javax.swing.Box;
 import javax.swing.GroupLayout;
@@ -65,6 +62,7 @@ import org.matsim.contrib.drt.run.DrtConfigGroup.OperationalScheme;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.ConfigWriter;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
@@ -127,6 +125,8 @@ public class GuiWithConfigEditor extends JFrame {
 	private final String mainClass;
 
 	private File configFile;
+	// The last sweep spec entered in "Create Sweep", offered again the next time.
+	private String sweepSpec;
 	private File lastUsedDirectory;
 
 	/**
@@ -143,6 +143,8 @@ public class GuiWithConfigEditor extends JFrame {
 	private void createLayout() {
 		this.lastUsedDirectory = new File(".");
 
+		createPreprocessButtons();
+
 		txtConfigfilename = new JTextField();
 		txtConfigfilename.setText("");
 		txtConfigfilename.setColumns(10);
@@ -396,6 +398,40 @@ public class GuiWithConfigEditor extends JFrame {
 			}
 		});
 
+		JButton btnCreateSweep = new JButton("Create Sweep…");
+		btnCreateSweep.setToolTipText("Write one config per combination of parameter values, based on the loaded config.");
+		btnCreateSweep.addActionListener(e -> {
+			if (configFile == null || !configFile.exists()) {
+				JOptionPane.showMessageDialog(GuiWithConfigEditor.this,
+						"Please choose or create the base config first.",
+						"Create Sweep",
+						JOptionPane.WARNING_MESSAGE);
+				return;
+			}
+			JTextArea specArea = new JTextArea(sweepSpec != null ? sweepSpec : ConfigSweep.EXAMPLE, 12, 80);
+			specArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+			int choice = JOptionPane.showConfirmDialog(GuiWithConfigEditor.this,
+					new JScrollPane(specArea),
+					"Create Sweep based on " + configFile.getName(),
+					JOptionPane.OK_CANCEL_OPTION,
+					JOptionPane.PLAIN_MESSAGE);
+			if (choice != JOptionPane.OK_OPTION) {
+				return;
+			}
+			sweepSpec = specArea.getText();
+			File cfg = this.configFile;
+			String spec = sweepSpec;
+			runPreprocessing("Create Sweep", () -> ConfigSweep.generate(cfg, spec), result -> {
+				JOptionPane.showMessageDialog(GuiWithConfigEditor.this,
+						"Wrote " + result.configFiles().size() + " config files next to the base config, e.g.\n"
+								+ result.configFiles().get(0).getAbsolutePath() + "\n\n"
+								+ "Index of the variants and their values:\n"
+								+ result.indexFile().getAbsolutePath(),
+						"Create Sweep",
+						JOptionPane.INFORMATION_MESSAGE);
+			});
+		});
+
 		this.btnEdit = new JButton("Edit…");
 		this.btnEdit.setEnabled(false);
 		this.btnEdit.addActionListener(e -> {
@@ -610,6 +646,8 @@ public class GuiWithConfigEditor extends JFrame {
 														.addPreferredGap(ComponentPlacement.RELATED)
 														.addComponent(btnCreateConfig) // Added Button
 														.addPreferredGap(ComponentPlacement.RELATED)
+														.addComponent(btnCreateSweep)
+														.addPreferredGap(ComponentPlacement.RELATED)
 														.addComponent(btnEdit))
 												.addComponent(progressBar, GroupLayout.DEFAULT_SIZE, 285,
 														Short.MAX_VALUE)
@@ -648,6 +686,7 @@ public class GuiWithConfigEditor extends JFrame {
 										GroupLayout.PREFERRED_SIZE)
 								.addComponent(btnChoose)
 								.addComponent(btnCreateConfig) // Added Button
+								.addComponent(btnCreateSweep)
 								.addComponent(btnEdit))
 						.addPreferredGap(ComponentPlacement.RELATED)
 						.addComponent(lblFilepaths)
@@ -713,44 +752,238 @@ public class GuiWithConfigEditor extends JFrame {
 	}
 	
 	/**
-	 * Tries to detect the Coordinate Reference System (CRS) by scanning the first few
-	 * lines of a MATSim network file without parsing the whole XML.
+	 * Creates the buttons of the pre-processing row. They work on the currently loaded
+	 * config file and are enabled together with the "Start MATSim" button.
+	 */
+	private void createPreprocessButtons() {
+		JButton btnSample = new JButton("Sample Population…");
+		btnSample.setToolTipText("Write a 1%/10%/25% sample of the plans file and a matching config with scaled capacities.");
+		btnSample.addActionListener(e -> {
+			String[] options = { "1%", "10%", "25%" };
+			Object choice = JOptionPane.showInputDialog(GuiWithConfigEditor.this,
+					"Sample size of the population:",
+					"Sample Population",
+					JOptionPane.QUESTION_MESSAGE, null, options, options[1]);
+			if (choice == null) {
+				return;
+			}
+			double fraction = Double.parseDouble(choice.toString().replace("%", "")) / 100.;
+			File cfg = this.configFile;
+			runPreprocessing("Sample Population", () -> PopulationSampler.sample(cfg, fraction), result -> {
+				int load = JOptionPane.showConfirmDialog(GuiWithConfigEditor.this,
+						"Wrote " + result.personsWritten() + " of " + result.personsRead() + " persons to\n"
+								+ result.plansFile().getAbsolutePath() + "\n\n"
+								+ "The matching config with scaled flow and storage capacities and its own\n"
+								+ "output directory is\n"
+								+ result.configFile().getAbsolutePath() + "\n\n"
+								+ "Load the sampled config now?",
+						"Sample Population",
+						JOptionPane.YES_NO_OPTION,
+						JOptionPane.INFORMATION_MESSAGE);
+				if (load == JOptionPane.YES_OPTION) {
+					loadConfigFile(result.configFile());
+				}
+			});
+		});
+		preprocessButtons.put("samplePopulation", btnSample);
+
+		JButton btnSimplify = new JButton("Simplify Network…");
+		btnSimplify.setToolTipText("Remove unreachable links and merge link chains with identical attributes.");
+		btnSimplify.addActionListener(e -> {
+			File cfg = this.configFile;
+			runPreprocessing("Simplify Network", () -> NetworkSimplification.simplify(cfg), result -> {
+				File networkFile = result.networkFile();
+				String crs = detectCrsFromNetworkFile(networkFile).orElse("unknown");
+				JOptionPane.showMessageDialog(GuiWithConfigEditor.this,
+						"Nodes: " + result.nodesBefore() + " → " + result.nodesAfter() + "\n"
+								+ "Links: " + result.linksBefore() + " → " + result.linksAfter()
+								+ " (" + result.linksKept() + " used by the transit schedule or counts kept as they are)\n"
+								+ "CRS: " + crs + "\n\n"
+								+ "Simplified network:\n" + networkFile.getAbsolutePath() + "\n\n"
+								+ "Link mapping (original → simplified):\n" + result.mappingFile().getAbsolutePath() + "\n\n"
+								+ "Set network.inputNetworkFile to the simplified network to use it. Plans with\n"
+								+ "routes on the original network need to be re-routed.",
+						"Simplify Network",
+						JOptionPane.INFORMATION_MESSAGE);
+			});
+		});
+		preprocessButtons.put("simplifyNetwork", btnSimplify);
+
+		JButton btnInputInfo = new JButton("Input File Info…");
+		btnInputInfo.setToolTipText("Show CRS, size and header attributes of the input files referenced by the config.");
+		btnInputInfo.addActionListener(e -> {
+			File cfg = this.configFile;
+			runPreprocessing("Input File Info", () -> describeInputFiles(cfg), text -> {
+				JTextArea area = new JTextArea(text, 25, 80);
+				area.setEditable(false);
+				area.setCaretPosition(0);
+				JOptionPane.showMessageDialog(GuiWithConfigEditor.this,
+						new JScrollPane(area),
+						"Input File Info",
+						JOptionPane.INFORMATION_MESSAGE);
+			});
+		});
+		preprocessButtons.put("inputFileInfo", btnInputInfo);
+
+		JButton btnWarmStart = new JButton("Warm Start…");
+		btnWarmStart.setToolTipText("Start from the output plans of an earlier run, with routes kept.");
+		btnWarmStart.addActionListener(e -> {
+			JFileChooser chooser = new JFileChooser();
+			File outputDir = new File(txtOutput.getText());
+			chooser.setCurrentDirectory(outputDir.isDirectory() ? outputDir : lastUsedDirectory);
+			chooser.setDialogTitle("Choose the output_plans file of an earlier run");
+			if (chooser.showOpenDialog(GuiWithConfigEditor.this) != JFileChooser.APPROVE_OPTION) {
+				return;
+			}
+			File outputPlans = chooser.getSelectedFile();
+			String[] options = { "Selected plan only", "Best 3 plans by score", "Best 5 plans by score" };
+			Object choice = JOptionPane.showInputDialog(GuiWithConfigEditor.this,
+					"Plans to keep per person:",
+					"Warm Start",
+					JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+			if (choice == null) {
+				return;
+			}
+			int plansToKeep = choice == options[0] ? 1 : (choice == options[1] ? 3 : 5);
+			File cfg = this.configFile;
+			runPreprocessing("Warm Start", () -> PlansWarmStart.create(cfg, outputPlans, plansToKeep), result -> {
+				int load = JOptionPane.showConfirmDialog(GuiWithConfigEditor.this,
+						"Wrote " + result.plansWritten() + " plans of " + result.persons() + " persons to\n"
+								+ result.plansFile().getAbsolutePath() + "\n\n"
+								+ "The matching config is\n"
+								+ result.configFile().getAbsolutePath() + "\n\n"
+								+ "Load the warm-start config now?",
+						"Warm Start",
+						JOptionPane.YES_NO_OPTION,
+						JOptionPane.INFORMATION_MESSAGE);
+				if (load == JOptionPane.YES_OPTION) {
+					loadConfigFile(result.configFile());
+				}
+			});
+		});
+		preprocessButtons.put("warmStart", btnWarmStart);
+	}
+
+	/**
+	 * Probes all input files referenced by the given config. Only file headers are read
+	 * and results are cached, so this is cheap even for large scenarios.
+	 */
+	private static String describeInputFiles(File cfg) {
+		Config config = ConfigUtils.loadConfig(cfg.getAbsolutePath());
+		Map<String, String> inputs = new LinkedHashMap<>();
+		inputs.put("Network", config.network().getInputFile());
+		inputs.put("Plans", config.plans().getInputFile());
+		inputs.put("Facilities", config.facilities().getInputFile());
+		inputs.put("Transit schedule", config.transit().getTransitScheduleFile());
+		inputs.put("Transit vehicles", config.transit().getVehiclesFile());
+		inputs.put("Vehicles", config.vehicles().getVehiclesFile());
+		inputs.put("Counts", config.counts().getCountsFileName());
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("Global CRS: ").append(config.global().getCoordinateSystem()).append("\n");
+		for (Map.Entry<String, String> input : inputs.entrySet()) {
+			if (input.getValue() == null || input.getValue().isBlank()) {
+				continue;
+			}
+			sb.append("\n").append(input.getKey()).append(": ").append(input.getValue()).append("\n");
+			URL url = ConfigGroup.getInputFileURL(config.getContext(), input.getValue());
+			if (!"file".equals(url.getProtocol())) {
+				sb.append("  (remote file, not probed)\n");
+				continue;
+			}
+			File file;
+			try {
+				file = new File(url.toURI());
+			} catch (Exception ex) {
+				file = new File(url.getPath());
+			}
+			if (!file.isFile()) {
+				sb.append("  File not found: ").append(file.getAbsolutePath()).append("\n");
+				continue;
+			}
+			try {
+				InputFileProbe.Metadata metadata = InputFileProbe.probe(file);
+				sb.append("  Root element: <").append(metadata.rootElement()).append(">");
+				if (metadata.schema() != null) {
+					sb.append(" (").append(metadata.schema()).append(")");
+				}
+				sb.append("\n");
+				sb.append("  File size: ").append(metadata.fileSize() / 1024).append(" KB\n");
+				sb.append("  CRS: ").append(metadata.crs().orElse("not specified")).append("\n");
+				metadata.records().forEach((element, count) ->
+						sb.append("  <").append(element).append("> records: ").append(count).append("\n"));
+				metadata.rootAttributes().forEach((k, v) -> sb.append("  @").append(k).append(" = ").append(v).append("\n"));
+				metadata.attributes().forEach((k, v) -> {
+					if (!InputFileProbe.CRS_ATTRIBUTE.equals(k)) {
+						sb.append("  ").append(k).append(" = ").append(v).append("\n");
+					}
+				});
+			} catch (IOException ex) {
+				sb.append("  Could not read file header: ").append(ex.getMessage()).append("\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Runs a pre-processing task in a background thread while the progress bar is shown.
+	 * On success, {@code onSuccess} is called on the event dispatch thread with the result;
+	 * on failure, the error is shown in a dialog.
+	 */
+	private <T> void runPreprocessing(String title, Callable<T> task, Consumer<T> onSuccess) {
+		progressBar.setVisible(true);
+		progressBar.setEnabled(true);
+		for (JButton button : preprocessButtons.values()) {
+			button.setEnabled(false);
+		}
+		new Thread(() -> {
+			T result = null;
+			Exception error = null;
+			try {
+				result = task.call();
+			} catch (Exception ex) {
+				log.warn(title + " failed.", ex);
+				error = ex;
+			}
+			final T finalResult = result;
+			final Exception finalError = error;
+			SwingUtilities.invokeLater(() -> {
+				progressBar.setVisible(exeRunner != null);
+				for (JButton button : preprocessButtons.values()) {
+					button.setEnabled(true);
+				}
+				if (finalError != null) {
+					JOptionPane.showMessageDialog(GuiWithConfigEditor.this,
+							title + " failed.\n\nError: " + finalError.getMessage(),
+							title + " Error",
+							JOptionPane.ERROR_MESSAGE);
+				} else {
+					onSuccess.accept(finalResult);
+				}
+			});
+		}, title).start();
+	}
+
+	/**
+	 * Tries to detect the Coordinate Reference System (CRS) from the header of a MATSim
+	 * network file without parsing the whole XML, see {@link InputFileProbe}.
 	 *
-	 * @param networkFile The gzipped network.xml.gz file.
+	 * @param networkFile The network file (plain, .gz or .zst).
 	 * @return An Optional containing the CRS string if found, otherwise an empty Optional.
 	 */
 	private Optional<String> detectCrsFromNetworkFile(File networkFile) {
-	    // We will only scan the first few lines for efficiency.
-	    final int LINES_TO_SCAN = 50;
-
-	    // A regex pattern to find the CRS attribute and capture its value.
-	    // It looks for: <attribute name="coordinateReferenceSystem" ...>VALUE</attribute>
-	    final Pattern crsPattern = Pattern.compile(
-	        "<attribute\\s+name=\"coordinateReferenceSystem\"[^>]*>([^<]+)</attribute>"
-	    );
-
-	    // Use try-with-resources to ensure streams are closed automatically
-	    try (FileInputStream fis = new FileInputStream(networkFile);
-	         GZIPInputStream gzis = new GZIPInputStream(fis);
-	         BufferedReader reader = new BufferedReader(new InputStreamReader(gzis))) {
-
-	        String line;
-	        for (int i = 0; i < LINES_TO_SCAN && (line = reader.readLine()) != null; i++) {
-	            Matcher matcher = crsPattern.matcher(line.trim());
-	            if (matcher.find()) {
-	                // Group 1 contains the text captured by the parentheses in the pattern
-	                String crsValue = matcher.group(1);
-	                log.info("Detected Coordinate Reference System '" + crsValue + "' from network file header.");
-	                return Optional.of(crsValue);
-	            }
+	    try {
+	        Optional<String> crs = InputFileProbe.probe(networkFile).crs();
+	        if (crs.isPresent()) {
+	            log.info("Detected Coordinate Reference System '" + crs.get() + "' from network file header.");
+	        } else {
+	            log.info("CRS attribute not found in the header of the network file.");
 	        }
-
+	        return crs;
 	    } catch (IOException e) {
 	        log.warn("Could not read network file header to detect CRS: " + networkFile.getAbsolutePath(), e);
+	        return Optional.empty();
 	    }
-
-	    log.info("CRS attribute not found in the first " + LINES_TO_SCAN + " lines of the network file.");
-	    return Optional.empty();
 	}
 	
 	private void updateGuiWithConfig(Config config, File configFile) {
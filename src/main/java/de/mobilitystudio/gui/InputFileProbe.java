@@ -0,0 +1,306 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Fast metadata probe for MATSim input files (network, plans, facilities, transit schedule,
+ * vehicles, counts).
+ *
+ * <p>The file is read with a streaming StAX parser, so only the header is decompressed and
+ * parsed: the root element with its attributes, the DOCTYPE and the {@code <attributes>}
+ * block (which holds the {@code coordinateReferenceSystem}). After the header, records
+ * ({@code <node>}, {@code <person>}, …) are counted per element type. Only direct children
+ * of their container count, so e.g. the {@code <link>} elements of a transit route are not
+ * links. Sections that end within the first few hundred kilobytes are counted exactly; the
+ * records of the last section of a file ({@code <links>}, the persons, …) are estimated
+ * from their average compressed size; then the file is closed.</p>
+ *
+ * <p>Results are cached per path and invalidated when the modification time or size of
+ * the file changes, so the GUI can show metadata as often as it likes.</p>
+ *
+ * @author ikaddoura
+ */
+final class InputFileProbe {
+
+    private static final Logger log = LogManager.getLogger(InputFileProbe.class);
+
+    static final String CRS_ATTRIBUTE = "coordinateReferenceSystem";
+
+    /** Elements that are counted as records, with the element they must be a direct child of. */
+    private static final Map<String, String> RECORD_CONTAINERS = Map.of(
+            "node", "nodes", "link", "links", "person", "population", "facility", "facilities",
+            "stopFacility", "transitStops", "transitLine", "transitSchedule",
+            "vehicleType", "vehicleDefinitions", "vehicle", "vehicleDefinitions", "count", "counts");
+
+    /**
+     * Records that form the last section of their file, so that their number can be
+     * extrapolated from where the section starts to the end of the file.
+     */
+    private static final Set<String> LAST_SECTION_RECORDS = Set.of(
+            "link", "person", "facility", "transitLine", "vehicle", "count");
+
+    /**
+     * The records of a section are sampled until this many compressed bytes were read. The
+     * decompressor and the parser read ahead by a roughly constant amount, which cancels out
+     * over the sample.
+     */
+    private static final long SAMPLE_BYTES = 256L * 1024;
+
+    private static final Pattern DOCTYPE_SYSTEM_ID = Pattern.compile("\"([^\"]+\\.(?:dtd|xsd))\"");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final Map<String, CacheEntry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Metadata of an input file.
+     *
+     * @param rootElement       name of the root element, e.g. {@code network} or {@code population}
+     * @param schema            DTD or XSD referenced by the file, or {@code null}
+     * @param rootAttributes    attributes of the root element
+     * @param attributes        entries of the top-level {@code <attributes>} block
+     * @param fileSize          size of the file on disk in bytes
+     * @param records           number of records per element type, in file order
+     */
+    record Metadata(String rootElement, String schema, Map<String, String> rootAttributes,
+                    Map<String, String> attributes, long fileSize, Map<String, RecordCount> records) {
+
+        Optional<String> crs() {
+            return Optional.ofNullable(attributes.get(CRS_ATTRIBUTE));
+        }
+    }
+
+    /** How exact a {@link RecordCount} is. */
+    enum Accuracy { EXACT, ESTIMATE, AT_LEAST }
+
+    /** Number of records of one element type. */
+    record RecordCount(long count, Accuracy accuracy) {
+
+        @Override
+        public String toString() {
+            return switch (accuracy) {
+                case EXACT -> Long.toString(count);
+                case ESTIMATE -> "~" + count;
+                case AT_LEAST -> "more than " + count;
+            };
+        }
+    }
+
+    private record CacheEntry(long lastModified, long size, Metadata metadata) { }
+
+    private InputFileProbe() { }
+
+    /**
+     * Probe the given file, or return the cached result if the file has not changed since.
+     */
+    static Metadata probe(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long size = file.length();
+        CacheEntry cached = CACHE.get(key);
+        if (cached != null && cached.lastModified() == lastModified && cached.size() == size) {
+            return cached.metadata();
+        }
+        Metadata metadata = read(file, size);
+        CACHE.put(key, new CacheEntry(lastModified, size, metadata));
+        return metadata;
+    }
+
+    private static Metadata read(File file, long fileSize) throws IOException {
+        long start = System.nanoTime();
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             InputStream in = decompress(file.getName(), counting)) {
+
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                String rootElement = null;
+                String schema = null;
+                Map<String, String> rootAttributes = new LinkedHashMap<>();
+                Map<String, String> attributes = new LinkedHashMap<>();
+                Deque<String> elements = new ArrayDeque<>();
+                boolean inHeaderAttributes = false;
+                String attributeName = null;
+                StringBuilder attributeValue = new StringBuilder();
+                // Sections are contiguous: once another record type starts, the previous one is complete.
+                Map<String, Long> records = new LinkedHashMap<>();
+                String sampled = null;
+                long sampleStart = -1;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.DTD) {
+                        Matcher m = DOCTYPE_SYSTEM_ID.matcher(reader.getText());
+                        if (m.find()) schema = m.group(1);
+                    } else if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        String parent = elements.peek();
+                        elements.push(name);
+                        int depth = elements.size();
+                        if (depth == 1) {
+                            rootElement = name;
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                String attrName = reader.getAttributeLocalName(i);
+                                rootAttributes.put(attrName, reader.getAttributeValue(i));
+                                if (schema == null && "schemaLocation".equals(attrName)) {
+                                    // "namespace location" pairs, the location of the (single) schema comes last
+                                    String[] parts = reader.getAttributeValue(i).trim().split("\\s+");
+                                    schema = parts[parts.length - 1];
+                                }
+                            }
+                        } else if (depth == 2 && "attributes".equals(name)) {
+                            inHeaderAttributes = true;
+                        } else if (inHeaderAttributes && "attribute".equals(name)) {
+                            attributeName = reader.getAttributeValue(null, "name");
+                            attributeValue.setLength(0);
+                        } else if (parent != null && parent.equals(RECORD_CONTAINERS.get(name))) {
+                            if (!name.equals(sampled)) {
+                                sampled = name;
+                                sampleStart = counting.getCount();
+                            }
+                            records.merge(name, 1L, Long::sum);
+                            if (counting.getCount() - sampleStart >= SAMPLE_BYTES) {
+                                break;
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.CHARACTERS && attributeName != null) {
+                        attributeValue.append(reader.getText());
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        elements.pop();
+                        int depth = elements.size();
+                        if (attributeName != null && "attribute".equals(reader.getLocalName())) {
+                            attributes.put(attributeName, attributeValue.toString().trim());
+                            attributeName = null;
+                        } else if (inHeaderAttributes && depth == 1) {
+                            inHeaderAttributes = false;
+                        }
+                    }
+                }
+
+                boolean complete = !reader.hasNext();
+                Map<String, RecordCount> counts = new LinkedHashMap<>();
+                for (Map.Entry<String, Long> e : records.entrySet()) {
+                    long n = e.getValue();
+                    if (complete || !e.getKey().equals(sampled)) {
+                        counts.put(e.getKey(), new RecordCount(n, Accuracy.EXACT));
+                    } else if (LAST_SECTION_RECORDS.contains(sampled)) {
+                        counts.put(e.getKey(), new RecordCount(
+                                estimateRecords(n, sampleStart, counting.getCount(), fileSize), Accuracy.ESTIMATE));
+                    } else {
+                        // Another section follows, of unknown size.
+                        counts.put(e.getKey(), new RecordCount(n, Accuracy.AT_LEAST));
+                    }
+                }
+                log.debug("Probed " + file + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+                return new Metadata(rootElement, schema, Collections.unmodifiableMap(rootAttributes),
+                        Collections.unmodifiableMap(attributes), fileSize, Collections.unmodifiableMap(counts));
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not parse " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Extrapolate the number of records of the last section from the compressed bytes the
+     * sampled records took, assuming the section runs to the end of the file.
+     */
+    private static long estimateRecords(long records, long sampleStart, long bytesRead, long fileSize) {
+        long sampleBytes = bytesRead - sampleStart;
+        if (sampleBytes <= 0) {
+            return records;
+        }
+        return Math.max(records, Math.round((double) records * (fileSize - sampleStart) / sampleBytes));
+    }
+
+    private static InputStream decompress(String fileName, InputStream in) throws IOException {
+        if (fileName.endsWith(".gz")) {
+            return new GZIPInputStream(in, 1 << 16);
+        }
+        if (fileName.endsWith(".zst")) {
+            return new ZstdInputStream(in);
+        }
+        return in;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Never resolve the referenced DTDs; they are often remote and not needed here.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /** Counts the bytes read from the underlying (compressed) file. */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -13,11 +13,26 @@ package de.mobilitystudio.gui;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -66,11 +81,112 @@ final class JlamaService {
             // which manifests as an unhelpful InvocationTargetException on first use.
     };
 
-    /** Cached loaded models keyed by full model name. */
-    private static final Map<String, Object> MODEL_CACHE = new ConcurrentHashMap<>();
+    /**
+     * Loaded (or loading) models keyed by full model name. Bounded by {@link #memoryBudget()}:
+     * when a model is loaded, the least recently used idle models are unloaded until the
+     * resident models fit.
+     */
+    private static final Map<String, CachedModel> MODEL_CACHE = new ConcurrentHashMap<>();
+    /** Models that have been warmed up after loading. */
+    private static final Set<String> WARM_MODELS = ConcurrentHashMap.newKeySet();
+
+    /** Decoding speed of the last answer in tokens per second, or 0 if there was none yet. */
+    private static volatile double lastTokensPerSecond = 0;
+    /** Token counts and times of the last answer generated on the current thread. */
+    private static final ThreadLocal<Usage> LAST_USAGE = new ThreadLocal<>();
+
+    /** Token counts and prefill / generation time of one answer, as measured by JLama. */
+    record Usage(int promptTokens, int generatedTokens, long promptMillis, long generateMillis) { }
+
+    /** Loads and warms up models in the background, one at a time. */
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "jlama-loader");
+        t.setDaemon(true);
+        return t;
+    });
     /** Cached "promptSupport" lookup result per model (Optional<PromptSupport>). */
     private static final Map<String, Object> PROMPT_SUPPORT_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Whether the KV cache of a conversation is kept between turns, see {@link #generateInSession}.
+     * Off unless {@code -Dmobilitystudio.jlama.reuseKvCache=true}: it relies on JLama continuing
+     * a session at its current position with a prompt that has no BOS token of its own and with
+     * {@code ntokens} counted from there, which has not been checked against every JLama version.
+     */
+    static final boolean REUSE_KV_CACHE = Boolean.getBoolean("mobilitystudio.jlama.reuseKvCache");
+    /** Estimated KV cache memory per token of a 1B model (F32 working memory). */
+    private static final long KV_BYTES_PER_TOKEN = 100 * 1024;
+    /** Sessions not used for this long are dropped. */
+    static final long SESSION_IDLE_MILLIS = 15 * 60 * 1000L;
+
+    /**
+     * Chat sessions whose KV cache is kept in the model between turns, keyed by conversation
+     * id, least recently used first. Guarded by itself.
+     */
+    private static final Map<String, Session> SESSIONS = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** A conversation whose prompts and replies are in the KV cache of a JLama session. */
+    private static final class Session {
+        final UUID id = UUID.randomUUID();
+        final String modelName;
+        /** Everything the session has seen so far: the rendered prompts and the generated replies. */
+        String text = "";
+        /** Estimated number of tokens in the KV cache. */
+        int tokens = 0;
+        long lastUsed = System.currentTimeMillis();
+
+        Session(String modelName) {
+            this.modelName = modelName;
+        }
+    }
+
+    /** A resident model, as shown in the "Loaded models" dialog. */
+    record ResidentModel(String name, long bytes, boolean loaded, boolean ready, boolean inUse, long lastUsed) { }
+
+    /**
+     * An entry of the model cache. The model is a future, so that a chat request waits for a
+     * running preload of the same model instead of loading it a second time.
+     */
+    private static final class CachedModel {
+        final String name;
+        final CompletableFuture<Object> model = new CompletableFuture<>();
+        /** Estimated footprint: the size of the weights, which JLama maps into memory; 0 until known. */
+        volatile long bytes = 0;
+        volatile long lastUsed = System.currentTimeMillis();
+        /**
+         * Running generations (chat or warm-up), or -1 once the model is being unloaded. Only
+         * changed by {@link #tryUse}, {@link #release} and {@link #tryRetire}, so that a model
+         * cannot be closed between the idle check and the removal while a chat starts using it.
+         */
+        final AtomicInteger users = new AtomicInteger();
+
+        CachedModel(String name) {
+            this.name = name;
+        }
+
+        boolean isLoaded() {
+            return model.isDone() && !model.isCompletedExceptionally();
+        }
+
+        /** Marks the model as in use; false if it is being unloaded. */
+        boolean tryUse() {
+            while (true) {
+                int n = users.get();
+                if (n < 0) return false;
+                if (users.compareAndSet(n, n + 1)) return true;
+            }
+        }
+
+        void release() {
+            users.decrementAndGet();
+        }
+
+        /** Claims an idle model for unloading; afterwards {@link #tryUse} always fails. */
+        boolean tryRetire() {
+            return users.compareAndSet(0, -1);
+        }
+    }
+
     private JlamaService() {}
 
     /** True if {@code com.github.tjake.jlama.model.AbstractModel} is on the classpath. */
@@ -94,25 +210,26 @@ final class JlamaService {
      * @param userText        the user's new message
      * @param maxTokens       max tokens to generate
      * @param temperature     sampling temperature (e.g. 0.3f for focused answers)
+     * @param onToken         receives every generated piece of text as it is produced, on the
+     *                        generating thread; may be null
+     * @param conversationId  identifies the conversation across turns, so that its KV cache can
+     *                        be reused and only the new messages are prefilled (if
+     *                        {@link #REUSE_KV_CACHE} is set); may be null
      * @return the assistant's reply text
      */
     static String chat(String fullModelName, String systemPrompt,
                        List<Map.Entry<String, String>> history, String userText,
-                       int maxTokens, float temperature) throws IOException {
+                       int maxTokens, float temperature, Consumer<String> onToken,
+                       String conversationId) throws IOException {
 
         if (!isAvailable()) {
             throw new IOException("The 'Embedded (Java)' provider needs the JLama library on the "
                     + "classpath, but com.github.tjake.jlama.model.AbstractModel was not found.");
         }
+        CachedModel cached = null;
         try {
-            Object model = MODEL_CACHE.computeIfAbsent(fullModelName, name -> {
-                try {
-                    log.info("Loading JLama model '" + name + "' (this may take a while on first run)…");
-                    return loadModel(name);
-                } catch (Exception e) {
-                    throw new RuntimeException(translateLoadError(name, e));
-                }
-            });
+            cached = acquireModel(fullModelName);
+            Object model = cached.model.join();
 
             // Honour SwingWorker cancellation: if the user clicks "Stop" the worker
             // thread is interrupted; check that before kicking off a long generation.
@@ -121,8 +238,20 @@ final class JlamaService {
             }
 
             Object promptCtx = buildPrompt(fullModelName, model, systemPrompt, history, userText);
-            return generate(model, promptCtx, temperature, maxTokens);
+            if (conversationId == null || !REUSE_KV_CACHE) {
+                UUID session = UUID.randomUUID();
+                try {
+                    return generate(model, session, promptCtx, temperature, maxTokens, onToken, null).trim();
+                } finally {
+                    release(model, session);
+                }
+            }
+            return generateInSession(fullModelName, model, conversationId, promptCtx, temperature,
+                    maxTokens, onToken);
 
+        } catch (IOException ioe) {
+            // Already translated by awaitModel, or cancelled.
+            throw ioe;
         } catch (RuntimeException re) {
             // Unwrap from computeIfAbsent etc.
             if (re.getCause() instanceof IOException ioe) throw ioe;
@@ -131,6 +260,208 @@ final class JlamaService {
             // Translate unsupported-CPU/network errors that surface during generation as well
             // (not just during model loading).
             throw translateLoadError(fullModelName, ex);
+        } finally {
+            if (cached != null) cached.release();
+        }
+    }
+
+    /**
+     * Starts loading the given model in the background, if it is not loaded yet, and runs a
+     * tiny generation once it is there, so that the first real answer does not pay for
+     * JIT-compiling the matmul kernels. {@code onStatus} receives short progress messages on
+     * the loader thread; the returned future completes when the model is ready.
+     */
+    static CompletableFuture<Void> preload(String fullModelName, Consumer<String> onStatus) {
+        if (!isAvailable()) {
+            return CompletableFuture.failedFuture(new IOException("The JLama library is not on the classpath."));
+        }
+        if (WARM_MODELS.contains(fullModelName)) {
+            onStatus.accept(fullModelName + " is ready.");
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        CachedModel cached = cachedModel(fullModelName);
+        if (!cached.model.isDone()) {
+            onStatus.accept("Loading " + fullModelName + " in the background (downloaded on first use)…");
+        }
+        return cached.model.thenAcceptAsync(m -> {
+            if (!WARM_MODELS.contains(fullModelName) && cached.tryUse()) {
+                onStatus.accept("Warming up " + fullModelName + "…");
+                try {
+                    warmUp(m);
+                } finally {
+                    cached.release();
+                }
+                WARM_MODELS.add(fullModelName);
+            }
+            onStatus.accept(String.format("%s is ready (%.1f s).", fullModelName, (System.nanoTime() - start) / 1e9));
+        }, LOADER);
+    }
+
+    /**
+     * Decoding speed of the last answer (tokens after the first one, per second), or 0 if
+     * nothing has been generated yet.
+     */
+    static double lastTokensPerSecond() {
+        return lastTokensPerSecond;
+    }
+
+    /**
+     * Usage of the last answer generated by {@link #chat} on the calling thread, or null. For
+     * the prompt only the tokens not already in the session's KV cache are counted.
+     */
+    static Usage lastUsage() {
+        return LAST_USAGE.get();
+    }
+
+    /** True if the model is loaded and warmed up. */
+    static boolean isReady(String fullModelName) {
+        return WARM_MODELS.contains(fullModelName);
+    }
+
+    /** A few tokens in a throwaway session; failures are only logged, the model is usable anyway. */
+    private static void warmUp(Object model) {
+        UUID session = UUID.randomUUID();
+        try {
+            Class<?> pc = Class.forName("com.github.tjake.jlama.safetensors.prompt.PromptContext");
+            generate(model, session, pc.getMethod("of", String.class).invoke(null, "Hello"), 0.0f, 4, null, null);
+        } catch (Exception e) {
+            log.warn("JLama warm-up failed", e);
+        } finally {
+            release(model, session);
+        }
+    }
+
+    /** The cache entry of the given model, starting to load it on the loader thread if necessary. */
+    private static CachedModel cachedModel(String fullModelName) {
+        CachedModel[] created = new CachedModel[1];
+        CachedModel cached = MODEL_CACHE.computeIfAbsent(fullModelName, name -> created[0] = new CachedModel(name));
+        if (created[0] != null) {
+            LOADER.execute(() -> {
+                try {
+                    log.info("Loading JLama model '" + fullModelName + "' (this may take a while on first run)…");
+                    cached.model.complete(loadModel(cached));
+                } catch (Exception | LinkageError e) {
+                    // Forget failed loads, so that the next attempt tries again (e.g. once online).
+                    MODEL_CACHE.remove(fullModelName, cached);
+                    cached.model.completeExceptionally(translateLoadError(fullModelName, e));
+                }
+            });
+        }
+        cached.lastUsed = System.currentTimeMillis();
+        return cached;
+    }
+
+    /**
+     * Waits for the given model and marks it as in use; the caller must {@link CachedModel#release}
+     * it when done. Interruptible, so "Stop" also works while a model loads.
+     */
+    private static CachedModel acquireModel(String fullModelName) throws IOException {
+        while (true) {
+            CachedModel cached = cachedModel(fullModelName);
+            try {
+                cached.model.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Cancelled by user.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException ioe) throw ioe;
+                throw translateLoadError(fullModelName, e.getCause());
+            }
+            if (cached.tryUse()) return cached;
+            // Being unloaded; wait until it has left the cache, then load it again.
+            Thread.onSpinWait();
+        }
+    }
+
+    /** The model if it has been loaded successfully, else null. */
+    private static Object loadedModel(String fullModelName) {
+        CachedModel cached = MODEL_CACHE.get(fullModelName);
+        return cached != null && cached.isLoaded() ? cached.model.join() : null;
+    }
+
+    /**
+     * Memory the resident models may take together: a quarter of the physical memory (the
+     * weights are memory-mapped, outside the heap), which leaves room for the studio itself and
+     * for a MATSim run. Falls back to half the maximum heap if the physical memory is unknown.
+     */
+    static long memoryBudget() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                && os.getTotalMemorySize() > 0) {
+            return os.getTotalMemorySize() / 4;
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    /**
+     * Estimated number of tokens that the KV caches of all kept sessions may hold together: an
+     * eighth of the {@link #memoryBudget()}, e.g. about 5,000 tokens (500 MB) with 16 GB of
+     * physical memory.
+     */
+    static long sessionTokenBudget() {
+        return memoryBudget() / 8 / KV_BYTES_PER_TOKEN;
+    }
+
+    /** The models in the cache, most recently used first. */
+    static List<ResidentModel> residentModels() {
+        List<ResidentModel> models = new ArrayList<>();
+        for (CachedModel c : MODEL_CACHE.values()) {
+            models.add(new ResidentModel(c.name, c.bytes, c.isLoaded(), WARM_MODELS.contains(c.name),
+                    c.users.get() > 0, c.lastUsed));
+        }
+        models.sort(Comparator.comparingLong(ResidentModel::lastUsed).reversed());
+        return models;
+    }
+
+    /**
+     * Unloads a model and drops its sessions. Returns false if it is loading or generating.
+     */
+    static boolean unload(String fullModelName) {
+        CachedModel cached = MODEL_CACHE.get(fullModelName);
+        if (cached == null) return true;
+        if (!cached.isLoaded() || !cached.tryRetire()) return false;
+        unload(cached);
+        return true;
+    }
+
+    /** Closes a model that has been claimed with {@link CachedModel#tryRetire}. */
+    private static void unload(CachedModel cached) {
+        if (!MODEL_CACHE.remove(cached.name, cached)) return;
+        WARM_MODELS.remove(cached.name);
+        PROMPT_SUPPORT_CACHE.remove(cached.name);
+        synchronized (SESSIONS) {
+            SESSIONS.values().removeIf(s -> s.modelName.equals(cached.name));
+        }
+        Object model = cached.model.getNow(null);
+        if (model instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Could not close JLama model " + cached.name, e);
+            }
+        }
+        log.info(String.format("Unloaded JLama model %s (~%,d MB).", cached.name, cached.bytes >> 20));
+    }
+
+    /**
+     * Unloads the least recently used idle models until the resident models, including the one
+     * about to be loaded, fit into the {@link #memoryBudget()}. The model being loaded stays
+     * even if it alone exceeds the budget.
+     */
+    private static void evictModels(CachedModel loading) {
+        long budget = memoryBudget();
+        List<CachedModel> candidates = new ArrayList<>();
+        long total = 0;
+        for (CachedModel c : MODEL_CACHE.values()) {
+            total += c.bytes;
+            if (c != loading && c.isLoaded()) candidates.add(c);
+        }
+        candidates.sort(Comparator.comparingLong(c -> c.lastUsed));
+        for (CachedModel c : candidates) {
+            if (total <= budget) break;
+            if (!c.tryRetire()) continue;
+            total -= c.bytes;
+            unload(c);
         }
     }
 
@@ -205,8 +536,12 @@ final class JlamaService {
 
     // ------------------------------------------------------------------ reflection plumbing
 
-    /** Download (if needed) and load the given model into memory. */
-    private static Object loadModel(String fullModelName) throws Exception {
+    /**
+     * Download (if needed) and load the given model into memory, after making room for it in
+     * the model cache.
+     */
+    private static Object loadModel(CachedModel cached) throws Exception {
+        String fullModelName = cached.name;
         File dir = DEFAULT_MODEL_DIR.toFile();
         if (!dir.exists() && !dir.mkdirs()) {
             throw new IOException("Could not create model cache directory " + dir);
@@ -216,6 +551,9 @@ final class JlamaService {
         File modelPath = (File) sts.getMethod("maybeDownloadModel", String.class, String.class)
                 .invoke(null, dir.getAbsolutePath(), fullModelName);
 
+        cached.bytes = directorySize(modelPath.toPath());
+        evictModels(cached);
+
         Class<?> ms = Class.forName("com.github.tjake.jlama.model.ModelSupport");
         Class<?> dtype = Class.forName("com.github.tjake.jlama.safetensors.DType");
         Object f32 = dtype.getField("F32").get(null);
@@ -224,6 +562,14 @@ final class JlamaService {
         return ms.getMethod("loadModel", File.class, dtype, dtype).invoke(null, modelPath, f32, i8);
     }
 
+    private static long directorySize(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
     /** Build a {@code PromptContext} via the model's {@code PromptSupport.Builder}, or a plain prompt fallback. */
     private static Object buildPrompt(String fullModelName, Object model, String systemPrompt,
                                        List<Map.Entry<String, String>> history, String userText) throws Exception {
@@ -263,26 +609,199 @@ final class JlamaService {
         return builder.getClass().getMethod("build").invoke(builder);
     }
 
-    /** Call {@code AbstractModel.generate(...)} and return the response text. */
-    private static String generate(Object model, Object promptCtx, float temperature, int maxTokens)
-            throws Exception {
+    /**
+     * Generates within the KV cache of the conversation's session. The full prompt is rendered
+     * with the chat template as usual; if the session has already seen its beginning (the
+     * previous prompt and reply), only the rest is passed to JLama, which continues at the
+     * session's current position. Otherwise - first turn, edited history, other model, changed
+     * template output - a new session is started with the full prompt. If a continued session
+     * produces no text (e.g. because JLama counts {@code ntokens} from the start of the
+     * session), the turn is answered again in a new session.
+     */
+    private static String generateInSession(String fullModelName, Object model, String conversationId,
+                                            Object promptCtx, float temperature, int maxTokens,
+                                            Consumer<String> onToken) throws Exception {
+        String fullPrompt = promptText(promptCtx);
+        Session session;
+        synchronized (SESSIONS) {
+            session = SESSIONS.get(conversationId);
+            if (session != null && (fullPrompt == null || !session.modelName.equals(fullModelName)
+                    || session.text.isEmpty() || !fullPrompt.startsWith(session.text))) {
+                release(model, SESSIONS.remove(conversationId));
+                session = null;
+            }
+            if (session == null) {
+                session = new Session(fullModelName);
+                SESSIONS.put(conversationId, session);
+            }
+        }
+        Object prompt = promptCtx;
+        boolean continued = !session.text.isEmpty();
+        if (continued) {
+            Class<?> pc = Class.forName("com.github.tjake.jlama.safetensors.prompt.PromptContext");
+            prompt = pc.getMethod("of", String.class).invoke(null, fullPrompt.substring(session.text.length()));
+            log.info("JLama: reusing the KV cache of " + session.tokens + " tokens, prefilling "
+                    + (fullPrompt.length() - session.text.length()) + " new chars.");
+        }
+        int[] usedTokens = new int[1];
+        String reply;
+        try {
+            reply = generate(model, session.id, prompt, temperature, maxTokens, onToken, usedTokens);
+        } catch (Exception e) {
+            // The KV cache may hold a partial turn now.
+            synchronized (SESSIONS) {
+                release(model, SESSIONS.remove(conversationId));
+            }
+            throw e;
+        }
+        if (continued && reply.isBlank()) {
+            log.warn("JLama: the continued session of " + session.tokens + " tokens gave no answer;"
+                    + " answering in a new session.");
+            synchronized (SESSIONS) {
+                release(model, SESSIONS.remove(conversationId));
+            }
+            return generateInSession(fullModelName, model, conversationId, promptCtx, temperature, maxTokens, onToken);
+        }
+        synchronized (SESSIONS) {
+            // The history holds the trimmed reply (and chat templates trim it as well), so the
+            // next prompt starts with the trimmed one.
+            session.text = fullPrompt == null ? "" : fullPrompt + reply.strip();
+            session.tokens += usedTokens[0];
+            session.lastUsed = System.currentTimeMillis();
+            evictSessions(conversationId);
+        }
+        return reply.trim();
+    }
+
+    /**
+     * Drops idle sessions, then the least recently used ones until the kept sessions fit into
+     * {@link #sessionTokenBudget()}. The given session is kept in any case. Caller holds the lock.
+     */
+    private static void evictSessions(String keep) {
+        long now = System.currentTimeMillis();
+        long budget = sessionTokenBudget();
+        int total = 0;
+        for (Session s : SESSIONS.values()) total += s.tokens;
+        for (Iterator<Map.Entry<String, Session>> it = SESSIONS.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Session> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            if (total > budget || now - e.getValue().lastUsed > SESSION_IDLE_MILLIS) {
+                total -= e.getValue().tokens;
+                it.remove();
+                release(loadedModel(e.getValue().modelName), e.getValue());
+            }
+        }
+    }
+
+    /** Forgets the session of a conversation and frees its KV cache, e.g. when the chat is cleared. */
+    static void endSession(String conversationId) {
+        synchronized (SESSIONS) {
+            Session s = SESSIONS.remove(conversationId);
+            if (s != null) release(loadedModel(s.modelName), s);
+        }
+    }
+
+    /**
+     * Frees the KV cache of a session. JLama keeps one buffer per session id in the model's
+     * {@code kvBufferCache} and has no public API to drop it, so the entry is removed from the
+     * map inside (and closed). Best effort: if the layout differs, the buffer simply stays.
+     */
+    private static void release(Object model, Session session) {
+        if (session != null) release(model, session.id);
+    }
+
+    private static void release(Object model, UUID session) {
+        if (model == null) return;
+        try {
+            Object cache = field(model, "kvBufferCache");
+            if (cache == null) return;
+            for (Class<?> c = cache.getClass(); c != null; c = c.getSuperclass()) {
+                for (java.lang.reflect.Field f : c.getDeclaredFields()) {
+                    if (!Map.class.isAssignableFrom(f.getType())) continue;
+                    f.setAccessible(true);
+                    Object buffer = ((Map<?, ?>) f.get(cache)).remove(session);
+                    if (buffer instanceof AutoCloseable closeable) closeable.close();
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            log.debug("Could not free the KV cache of JLama session " + session, e);
+        }
+    }
+
+    private static Object field(Object o, String name) throws IllegalAccessException {
+        for (Class<?> c = o.getClass(); c != null; c = c.getSuperclass()) {
+            try {
+                java.lang.reflect.Field f = c.getDeclaredField(name);
+                f.setAccessible(true);
+                return f.get(o);
+            } catch (NoSuchFieldException ignore) { /* look in the superclass */ }
+        }
+        return null;
+    }
+
+    /** The rendered prompt text of a {@code PromptContext}, or null if it cannot be read. */
+    private static String promptText(Object promptCtx) {
+        try {
+            Object text = promptCtx.getClass().getMethod("getPrompt").invoke(promptCtx);
+            return text == null ? null : text.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Call {@code AbstractModel.generate(...)} in the given session and return the (untrimmed)
+     * response text. If {@code usedTokens} is given, its first element is set to the number of
+     * prompt plus generated tokens.
+     */
+    private static String generate(Object model, UUID session, Object promptCtx, float temperature,
+                                   int maxTokens, Consumer<String> onToken, int[] usedTokens) throws Exception {
         Class<?> abstractModel = Class.forName("com.github.tjake.jlama.model.AbstractModel");
         Class<?> promptContext = Class.forName("com.github.tjake.jlama.safetensors.prompt.PromptContext");
-        // Streaming sink that aborts generation if the worker thread was interrupted
-        // (i.e. the user pressed "Stop"). Throwing inside the BiConsumer makes JLama
+        // Streaming sink: JLama calls it with the decoded text of every new token (and the
+        // time it took). It forwards the text and aborts generation if the worker thread was
+        // interrupted (i.e. the user pressed "Stop"). Throwing inside the BiConsumer makes JLama
         // stop the token loop and propagate the exception out of generate().
+        // The decoding speed is measured from the first token, i.e. without the prefill.
+        if (onToken != null) LAST_USAGE.remove(); // worker threads are pooled
+        long startNanos = System.nanoTime();
+        long[] firstTokenNanos = new long[1];
+        int[] tokenCount = new int[1];
         java.util.function.BiConsumer<String, Float> sink = (s, f) -> {
             if (Thread.currentThread().isInterrupted()) {
                 throw new CancellationException("Cancelled by user.");
             }
+            if (tokenCount[0]++ == 0) firstTokenNanos[0] = System.nanoTime();
+            if (onToken != null && s != null && !s.isEmpty()) onToken.accept(s);
         };
         try {
             Object response = abstractModel
                     .getMethod("generate", UUID.class, promptContext, float.class, int.class,
                             java.util.function.BiConsumer.class)
-                    .invoke(model, UUID.randomUUID(), promptCtx, temperature, maxTokens, sink);
+                    .invoke(model, session, promptCtx, temperature, maxTokens, sink);
             Object text = response.getClass().getField("responseText").get(response);
-            return text == null ? "" : text.toString().trim();
+            String reply = text == null ? "" : text.toString();
+            long endNanos = System.nanoTime();
+            if (tokenCount[0] >= 8) { // not for the warm-up
+                lastTokensPerSecond = (tokenCount[0] - 1) / ((endNanos - firstTokenNanos[0]) / 1e9);
+            }
+            if (onToken != null) {
+                long prefillMillis = ((tokenCount[0] > 0 ? firstTokenNanos[0] : endNanos) - startNanos) / 1_000_000;
+                LAST_USAGE.set(new Usage(intField(response, "promptTokens", -1),
+                        intField(response, "generatedTokens", tokenCount[0]),
+                        longField(response, "promptTimeMs", prefillMillis),
+                        longField(response, "generateTimeMs", (endNanos - startNanos) / 1_000_000 - prefillMillis)));
+            }
+            if (usedTokens != null) {
+                try {
+                    usedTokens[0] = response.getClass().getField("promptTokens").getInt(response)
+                            + response.getClass().getField("generatedTokens").getInt(response);
+                } catch (ReflectiveOperationException e) {
+                    String prompt = promptText(promptCtx);
+                    usedTokens[0] = ((prompt == null ? 0 : prompt.length()) + reply.length()) / 4;
+                }
+            }
+            return reply;
         } catch (java.lang.reflect.InvocationTargetException ite) {
             Throwable cause = ite.getCause();
             if (cause instanceof CancellationException) {
@@ -292,6 +811,22 @@ final class JlamaService {
         }
     }
 
+    private static int intField(Object o, String name, int fallback) {
+        try {
+            return o.getClass().getField(name).getInt(o);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    private static long longField(Object o, String name, long fallback) {
+        try {
+            return o.getClass().getField(name).getLong(o);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
     /** Marker exception for cooperative cancellation inside the JLama streaming sink. */
     private static final class CancellationException extends RuntimeException {
         private static final long serialVersionUID = 1L;
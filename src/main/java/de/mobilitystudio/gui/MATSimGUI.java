@@ -32,6 +32,9 @@ public class MATSimGUI {
 	private static final Logger log = LogManager.getLogger(Controler.class);
 
 	public static void main(String[] args) {
+
+		// The embedded Copilot model needs the Vector API; restart with it if necessary.
+		VectorApiSupport.relaunchIfNeeded(MATSimGUI.class, args);
 		
 		// This sets up the modern FlatLaf theme based on a command-line argument.
 		// It defaults to the light theme if no argument is provided.
@@ -95,6 +95,7 @@ final class MatsimAgentTools {
     private final JTextArea stdErr;
     private final RunController runController;
     private final ApprovalCallback approver;
+    private final CopilotMetrics metrics;      // may be null
 
     /**
      * Per-file fingerprint of the most recent successful read or write performed
@@ -110,12 +111,13 @@ final class MatsimAgentTools {
     private final Map<String, FileFingerprint> readCache = new ConcurrentHashMap<>();
 
     MatsimAgentTools(Supplier<File> configFileSupplier, JTextArea stdOut, JTextArea stdErr,
-                     RunController runController, ApprovalCallback approver) {
+                     RunController runController, ApprovalCallback approver, CopilotMetrics metrics) {
         this.configFileSupplier = configFileSupplier != null ? configFileSupplier : () -> null;
         this.stdOut = stdOut;
         this.stdErr = stdErr;
         this.runController = runController;
         this.approver = approver != null ? approver : (a, b) -> Boolean.TRUE;
+        this.metrics = metrics;
     }
 
     // ------------------------------------------------------------------ schema
@@ -234,8 +236,20 @@ final class MatsimAgentTools {
     /**
      * Execute a tool and return a JSON object describing the result (or an error).
      * Never throws — errors are captured into the {@code "error"} field of the result.
+     * The execution time is recorded in the Copilot metrics, if any.
      */
     ObjectNode execute(String toolName, JsonNode args) {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        ObjectNode result = dispatch(toolName, args);
+        if (metrics != null) {
+            metrics.recordTool(toolName, start, (System.nanoTime() - startNanos) / 1_000_000,
+                    result.hasNonNull("error") ? result.get("error").asText() : null);
+        }
+        return result;
+    }
+
+    private ObjectNode dispatch(String toolName, JsonNode args) {
         if (args == null || args.isNull()) args = M.createObjectNode();
         try {
             switch (toolName) {
@@ -33,8 +33,10 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.prefs.Preferences;
+import java.util.stream.Stream;
 
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
@@ -64,6 +66,8 @@ import org.apache.logging.log4j.Logger;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import de.mobilitystudio.config.ConfigDocIndex;
+
 /**
  * "MATSim Copilot" – a chat-based AI assistant that reads the current
  * stdout / stderr (log) of the running MATSim simulation and helps the user
@@ -97,6 +101,7 @@ public class MatsimCopilotPanel extends JPanel {
     private static final String PREF_MODE = "copilot.mode";
     private static final String PREF_AUTO_APPROVE = "copilot.agent.autoApprove";
     private static final String PREF_INSTRUCTIONS = "copilot.instructions";
+    private static final String PREF_RESPONSE_CACHE = "copilot.responseCache";
 
     private static final int MAX_LOG_CHARS = 12_000;
     private static final int MAX_CONFIG_CHARS = 60_000;
@@ -161,9 +166,12 @@ public class MatsimCopilotPanel extends JPanel {
     private final JComboBox<String> modelBox = new JComboBox<>();
     private final JPasswordField apiKeyField = new JPasswordField(28);
     private final JButton saveKeyBtn = new JButton("Save");
+    private final JButton loadedModelsBtn = new JButton("Loaded models…");
+    private final JLabel accelerationLabel = new JLabel(" ");
     private final JCheckBox includeLogBox = new JCheckBox("Send recent log/error output as context", true);
     private final JCheckBox includeConfigBox = new JCheckBox("Send selected configuration file as context", false);
     private final JCheckBox autoApproveBox = new JCheckBox("Agent: auto-approve all actions (\u26A0 risky)", false);
+    private final JCheckBox responseCacheBox = new JCheckBox("Reuse cached answers", true);
     private final JTextArea instructionsArea = new JTextArea(8, 60);
     private final JButton settingsToggle = new JButton("\u2699 Settings \u25BC");
     private JPanel settingsPanel;
@@ -173,6 +181,8 @@ public class MatsimCopilotPanel extends JPanel {
     private final JButton explainErrorBtn = new JButton("Explain last error");
     private final JButton clearBtn = new JButton("New chat");
     private final JButton viewCtxBtn = new JButton("View context");
+    private final JButton metricsBtn = new JButton("Metrics…");
+    private final JButton clearCacheBtn = new JButton("Clear cache");
     private final JButton stopAgentBtn = new JButton("Stop");
     private final JLabel statusLabel = new JLabel(" ");
 
@@ -186,6 +196,12 @@ public class MatsimCopilotPanel extends JPanel {
 
     /** Conversation history for chat mode (role, content). */
     private final List<Map.Entry<String, String>> history = new ArrayList<>();
+    /** Identifies the chat-mode conversation, so the embedded provider can keep its KV cache. */
+    private volatile String chatSessionId = java.util.UUID.randomUUID().toString();
+    /** Latency and token counts of the model calls and agent tools of this session. */
+    private final CopilotMetrics metrics = new CopilotMetrics();
+    /** Answers to chat questions asked before, so the same question does not cost another call. */
+    private final CopilotResponseCache responseCache = new CopilotResponseCache();
     /** Persistent Gemini conversation for agent mode (raw "contents" entries). */
     private final List<ObjectNode> agentContents = new ArrayList<>();
     /** Persistent OpenAI-style conversation for agent mode (messages[] entries). */
@@ -198,6 +214,7 @@ public class MatsimCopilotPanel extends JPanel {
     public MatsimCopilotPanel(JTextArea stdOutSource, JTextArea stdErrSource) {
         this.stdOutSource = stdOutSource;
         this.stdErrSource = stdErrSource;
+        ConfigDocIndex.preload();
         buildUi();
         restoreFromPrefs();
         appendSystem(
@@ -251,6 +268,13 @@ public class MatsimCopilotPanel extends JPanel {
         topBar.add(includeLogBox);
         topBar.add(includeConfigBox);
         topBar.add(autoApproveBox);
+        topBar.add(responseCacheBox);
+        responseCacheBox.setToolTipText("Answer a question that was asked before (same provider, model, "
+                + "question and context, ignoring timestamps and directories) from "
+                + CopilotResponseCache.DEFAULT_DIR + ", without calling the model. Entries expire after "
+                + CopilotResponseCache.DEFAULT_TTL.toDays() + " days.");
+        topBar.add(clearCacheBtn);
+        clearCacheBtn.setToolTipText("Delete all cached answers in " + CopilotResponseCache.DEFAULT_DIR + ".");
         // MATSim version label intentionally not shown here: it widened the top bar and
         // prevented the checkboxes/dropdowns from shrinking when the window was resized.
         // The Copilot is still informed of the version via MatsimKnowledgeBase.matsimVersion()
@@ -270,10 +294,13 @@ public class MatsimCopilotPanel extends JPanel {
         c.gridx = 3; c.weightx = 1; settingsPanel.add(modelBox, c);
         modelBox.setEditable(true); // allow free typing of model names (esp. for Ollama)
         c.weightx = 0;
+        c.gridx = 4; settingsPanel.add(loadedModelsBtn, c);
+        loadedModelsBtn.setToolTipText("Show the embedded models held in memory and unload them.");
 
         c.gridx = 0; c.gridy = 1; settingsPanel.add(new JLabel("API key:"), c);
         c.gridx = 1; c.gridwidth = 2; settingsPanel.add(apiKeyField, c); c.gridwidth = 1;
         c.gridx = 3; settingsPanel.add(saveKeyBtn, c);
+        c.gridx = 4; settingsPanel.add(accelerationLabel, c);
         
         c.gridx = 0; c.gridy = 2; c.gridwidth = 4;
         c.insets = new Insets(8, 4, 2, 4);
@@ -310,6 +337,7 @@ public class MatsimCopilotPanel extends JPanel {
         actions.add(Box.createHorizontalStrut(20));
         actions.add(clearBtn);
         actions.add(viewCtxBtn);
+        actions.add(metricsBtn);
         actions.add(explainErrorBtn);
         actions.add(stopAgentBtn);
         actions.add(sendBtn);
@@ -334,17 +362,32 @@ public class MatsimCopilotPanel extends JPanel {
             revalidate();
             repaint();
         });
-        providerBox.addActionListener(e -> { if (!suppressEvents) onProviderChanged(); });
+        providerBox.addActionListener(e -> {
+            if (suppressEvents) return;
+            onProviderChanged();
+            preloadEmbeddedModel();
+        });
         modelBox.addActionListener(e -> {
             if (suppressEvents) return;
             Provider p = (Provider) providerBox.getSelectedItem();
             if (p != null && modelBox.getSelectedItem() != null) {
                 prefs.put(PREF_MODEL + p.name(), modelBox.getSelectedItem().toString());
+                preloadEmbeddedModel();
             }
         });
         includeLogBox.addActionListener(e -> prefs.putBoolean(PREF_INCLUDE_LOG, includeLogBox.isSelected()));
         includeConfigBox.addActionListener(e -> prefs.putBoolean(PREF_INCLUDE_CONFIG, includeConfigBox.isSelected()));
         autoApproveBox.addActionListener(e -> prefs.putBoolean(PREF_AUTO_APPROVE, autoApproveBox.isSelected()));
+        responseCacheBox.addActionListener(e -> prefs.putBoolean(PREF_RESPONSE_CACHE, responseCacheBox.isSelected()));
+        clearCacheBtn.addActionListener(e -> {
+            try {
+                responseCache.clear();
+                statusLabel.setText("Cached answers deleted.");
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Could not delete the cached answers: " + ex.getMessage(),
+                        "Clear cache", JOptionPane.ERROR_MESSAGE);
+            }
+        });
         
         instructionsArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { save(); }
@@ -360,16 +403,21 @@ public class MatsimCopilotPanel extends JPanel {
             updateModeUi();
         });
         saveKeyBtn.addActionListener(e -> saveCurrentKey());
+        loadedModelsBtn.addActionListener(e -> showLoadedModelsDialog());
         sendBtn.addActionListener(e -> onSend());
         explainErrorBtn.addActionListener(e -> onExplainError());
         clearBtn.addActionListener(e -> {
             history.clear();
+            JlamaService.endSession(chatSessionId);
+            chatSessionId = java.util.UUID.randomUUID().toString();
             agentContents.clear();
             agentMessages.clear();
             chatPane.setText("");
             appendSystem("New chat started.\n");
         });
         viewCtxBtn.addActionListener(e -> showContextDialog());
+        metricsBtn.setToolTipText("Time to first token, tokens/s and tool times of this session, exportable as CSV.");
+        metricsBtn.addActionListener(e -> showMetricsDialog());
         stopAgentBtn.addActionListener(e -> {
             agentCancelRequested = true;
             statusLabel.setText("Cancelling…");
@@ -430,6 +478,9 @@ public class MatsimCopilotPanel extends JPanel {
         apiKeyField.setText(savedKey);
         apiKeyField.setEnabled(p.needsKey);
         saveKeyBtn.setEnabled(p.needsKey);
+        loadedModelsBtn.setVisible(p == Provider.JLAMA);
+        accelerationLabel.setVisible(p == Provider.JLAMA);
+        updateAccelerationLabel();
 
         prefs.put(PREF_PROVIDER, p.name());
         // make sure the (possibly already-correct) model value is persisted
@@ -441,6 +492,8 @@ public class MatsimCopilotPanel extends JPanel {
         } else if (p == Provider.JLAMA) {
             if (!JlamaService.isAvailable()) {
                 statusLabel.setText("Embedded (Java) provider unavailable: JLama JAR is missing on the classpath.");
+            } else if (JlamaService.isReady(savedModel)) {
+                statusLabel.setText("Embedded (Java): " + savedModel + " is ready.");
             } else {
                 statusLabel.setText("Embedded (Java): model is downloaded on first use to "
                         + JlamaService.DEFAULT_MODEL_DIR + " (~0.5-2.5 GB). First answer will be slow.");
@@ -452,6 +505,102 @@ public class MatsimCopilotPanel extends JPanel {
         }
     }
 
+    /**
+     * When the embedded (Java) provider is selected, starts loading and warming up its model in
+     * the background, so that the first question does not wait for it. Not done on start-up
+     * ({@link #restoreFromPrefs()}), which would download/load gigabytes without being asked.
+     */
+    private void preloadEmbeddedModel() {
+        Provider p = (Provider) providerBox.getSelectedItem();
+        Object selected = modelBox.getSelectedItem();
+        if (p != Provider.JLAMA || selected == null || !JlamaService.isAvailable()) return;
+        String model = selected.toString();
+        JlamaService.preload(model, status -> javax.swing.SwingUtilities.invokeLater(() -> {
+            // Only while the model is still selected and no answer is running.
+            if (providerBox.getSelectedItem() == Provider.JLAMA && model.equals(modelBox.getSelectedItem())
+                    && currentWorker == null) {
+                statusLabel.setText("Embedded (Java): " + status);
+            }
+        })).exceptionally(t -> {
+            Throwable cause = t instanceof java.util.concurrent.CompletionException && t.getCause() != null
+                    ? t.getCause() : t;
+            log.warn("Preloading the embedded model failed", cause);
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                if (providerBox.getSelectedItem() == Provider.JLAMA && model.equals(modelBox.getSelectedItem())) {
+                    statusLabel.setText("Embedded (Java): could not load " + model + " - " + cause.getMessage());
+                }
+            });
+            return null;
+        });
+    }
+
+    /** Shows whether JLama runs with SIMD and how fast the last embedded answer was decoded. */
+    private void updateAccelerationLabel() {
+        double tps = JlamaService.lastTokensPerSecond();
+        accelerationLabel.setText(VectorApiSupport.describe()
+                + (tps > 0 ? String.format(" \u00B7 last answer %.1f tok/s", tps) : ""));
+    }
+
+    /**
+     * Lists the embedded models held in memory with their estimated footprint, and lets the user
+     * unload them. Models are unloaded automatically as well (least recently used first) when
+     * they exceed {@link JlamaService#memoryBudget()}.
+     */
+    private void showLoadedModelsDialog() {
+        String[] columns = { "Model", "Footprint", "Status", "Last used" };
+        javax.swing.table.DefaultTableModel tableModel = new javax.swing.table.DefaultTableModel(columns, 0) {
+            private static final long serialVersionUID = 1L;
+            @Override public boolean isCellEditable(int row, int column) { return false; }
+        };
+        JLabel summary = new JLabel();
+        Runnable refresh = () -> {
+            tableModel.setRowCount(0);
+            long total = 0;
+            java.text.DateFormat time = java.text.DateFormat.getTimeInstance(java.text.DateFormat.SHORT);
+            for (JlamaService.ResidentModel m : JlamaService.residentModels()) {
+                total += m.bytes();
+                String status = !m.loaded() ? "loading…" : m.inUse() ? "generating" : m.ready() ? "ready" : "loaded";
+                tableModel.addRow(new Object[] { m.name(),
+                        m.bytes() > 0 ? String.format("~%,d MB", m.bytes() >> 20) : "?", status,
+                        time.format(new java.util.Date(m.lastUsed())) });
+            }
+            summary.setText(String.format("Resident: ~%,d MB of a budget of ~%,d MB "
+                    + "(least recently used models are unloaded beyond that).",
+                    total >> 20, JlamaService.memoryBudget() >> 20));
+        };
+        refresh.run();
+
+        javax.swing.JTable table = new javax.swing.JTable(tableModel);
+        table.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(300);
+        JButton unloadBtn = new JButton("Unload");
+        unloadBtn.addActionListener(e -> {
+            int row = table.getSelectedRow();
+            if (row < 0) return;
+            String name = (String) tableModel.getValueAt(row, 0);
+            if (!JlamaService.unload(name)) {
+                JOptionPane.showMessageDialog(table, name + " is loading or generating an answer right now.",
+                        "Cannot unload", JOptionPane.INFORMATION_MESSAGE);
+            }
+            refresh.run();
+        });
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> refresh.run());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 2));
+        buttons.add(refreshBtn);
+        buttons.add(unloadBtn);
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(summary, BorderLayout.CENTER);
+        south.add(buttons, BorderLayout.EAST);
+        JPanel content = new JPanel(new BorderLayout(4, 4));
+        JScrollPane sp = new JScrollPane(table);
+        sp.setPreferredSize(new Dimension(640, 160));
+        content.add(sp, BorderLayout.CENTER);
+        content.add(south, BorderLayout.SOUTH);
+        JOptionPane.showMessageDialog(this, content, "Loaded embedded models", JOptionPane.PLAIN_MESSAGE);
+    }
+
     /**
      * Query Ollama's {@code GET /api/tags} for the list of locally installed model names.
      * Returns {@code null} on any failure (server not running, parse error, etc.).
@@ -498,6 +647,7 @@ public class MatsimCopilotPanel extends JPanel {
         includeLogBox.setSelected(prefs.getBoolean(PREF_INCLUDE_LOG, true));
         includeConfigBox.setSelected(prefs.getBoolean(PREF_INCLUDE_CONFIG, false));
         autoApproveBox.setSelected(prefs.getBoolean(PREF_AUTO_APPROVE, false));
+        responseCacheBox.setSelected(prefs.getBoolean(PREF_RESPONSE_CACHE, true));
         instructionsArea.setText(prefs.get(PREF_INSTRUCTIONS, MatsimKnowledgeBase.DEFAULT_INSTRUCTIONS));
         
         String savedMode = prefs.get(PREF_MODE, Mode.CHAT.name());
@@ -518,6 +668,8 @@ public class MatsimCopilotPanel extends JPanel {
         // pulls log and config itself via tools.
         includeLogBox.setVisible(!agent);
         includeConfigBox.setVisible(!agent);
+        responseCacheBox.setVisible(!agent); // agent turns act on the run, they are never replayed
+        clearCacheBtn.setVisible(!agent);
         sendBtn.setText(agent ? "Run agent  (Ctrl+Enter)" : "Send  (Ctrl+Enter)");
         explainErrorBtn.setVisible(!agent);
         if (agent) {
@@ -570,11 +722,12 @@ public class MatsimCopilotPanel extends JPanel {
 
         // Build the user message - optionally enriched with log/config context.
         StringBuilder full = new StringBuilder(userText);
+        String logCtx = "";
         if (attachLog && includeLogBox.isSelected()) {
-            String ctx = buildLogContext();
-            if (!ctx.isEmpty()) {
+            logCtx = buildLogContext();
+            if (!logCtx.isEmpty()) {
                 full.append("\n\n---\nRecent MATSim log (truncated):\n```\n")
-                    .append(ctx).append("\n```");
+                    .append(logCtx).append("\n```");
             }
         }
         if (attachLog && includeConfigBox.isSelected()) {
@@ -585,6 +738,11 @@ public class MatsimCopilotPanel extends JPanel {
             }
         }
         history.add(Map.entry("user", full.toString()));
+        // The parameter docs go out with this turn only, so that later turns do not resend them.
+        // Not searched with the config itself: it names every parameter it contains.
+        List<Map.Entry<String, String>> outgoing = new ArrayList<>(history);
+        outgoing.set(outgoing.size() - 1,
+                Map.entry("user", full + MatsimKnowledgeBase.relevantConfigDocs(userText + "\n" + logCtx)));
         appendUser(userText);
         appendAssistantPlaceholder();
 
@@ -597,33 +755,78 @@ public class MatsimCopilotPanel extends JPanel {
         // Grab the dynamic instructions from the UI thread before entering the background thread
         String dynamicSystemPrompt = effectiveSystemPrompt();
 
+        // Streamed text so far (worker thread), so a cancelled answer keeps what has arrived.
+        StringBuffer streamed = new StringBuffer();
+        long startNanos = System.nanoTime();
+        TokenBatcher toChat = new TokenBatcher(text -> {
+            if (!placeholderStreamed) {
+                statusLabel.setText(String.format("Streaming… (first token after %.1f s)",
+                        (System.nanoTime() - startNanos) / 1e9));
+            }
+            appendToPlaceholder(text);
+        });
+
+        int promptChars = dynamicSystemPrompt.length();
+        for (Map.Entry<String, String> e : outgoing) promptChars += e.getValue().length();
+        CopilotMetrics.Measurement measurement = metrics.start(CopilotMetrics.Kind.CHAT, p.label, model,
+                promptChars, token -> {
+                    streamed.append(token);
+                    toChat.accept(token);
+                });
+        String cacheKey = responseCacheBox.isSelected()
+                ? CopilotResponseCache.key(p.name(), model, dynamicSystemPrompt, history) : null;
+        CopilotResponseCache.Hit[] cacheHit = new CopilotResponseCache.Hit[1];
+
         SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
             @Override protected String doInBackground() throws Exception {
-                // Pass it into callProvider
-                return callProvider(p, model, apiKey, history, dynamicSystemPrompt); 
+                if (cacheKey != null) {
+                    cacheHit[0] = responseCache.get(cacheKey);
+                    if (cacheHit[0] != null) return cacheHit[0].reply();
+                }
+                try {
+                    String reply = callProvider(p, model, apiKey, outgoing, dynamicSystemPrompt, measurement);
+                    measurement.finish(reply, null);
+                    if (cacheKey != null) responseCache.put(cacheKey, p.name(), model, reply);
+                    return reply;
+                } catch (Exception e) {
+                    measurement.finish(streamed.toString(), e);
+                    throw e;
+                }
             }
             @Override protected void done() {
                 String reply;
+                String cancelled = streamed.length() > 0 ? streamed + "\n[Cancelled by user]" : "[Cancelled by user]";
                 try {
                     if (isCancelled()) {
-                        reply = "[Cancelled by user]";
+                        reply = cancelled;
                     } else {
                         reply = get();
                     }
                 } catch (java.util.concurrent.CancellationException ce) {
-                    reply = "[Cancelled by user]";
+                    reply = cancelled;
                 } catch (Exception ex) {
                     log.warn("Copilot error", ex);
                     Throwable root = ex.getCause() != null ? ex.getCause() : ex;
                     if (root instanceof InterruptedException) {
-                        reply = "[Cancelled by user]";
+                        reply = cancelled;
                     } else {
-                        reply = "[Error] " + root.getMessage();
+                        reply = (streamed.length() > 0 ? streamed + "\n" : "") + "[Error] " + root.getMessage();
                     }
                 }
                 history.add(Map.entry("assistant", reply));
                 replacePlaceholderWithAssistant(reply);
-                statusLabel.setText("Last turn: " + chatContextSizeLabel());
+                if (cacheHit[0] != null) {
+                    String when = java.text.DateFormat.getDateTimeInstance(java.text.DateFormat.MEDIUM,
+                            java.text.DateFormat.SHORT).format(java.util.Date.from(cacheHit[0].created()));
+                    appendSystem("(Cached answer from " + when + ". Untick \"Reuse cached answers\" and ask "
+                            + "again for a fresh one.)\n");
+                    statusLabel.setText("Answered from cache, no model call \u00B7 " + chatContextSizeLabel());
+                } else {
+                    if (p == Provider.JLAMA) updateAccelerationLabel();
+                    CopilotMetrics.Record last = metrics.lastCall();
+                    statusLabel.setText("Last turn: " + chatContextSizeLabel()
+                            + (last != null && last.error() == null ? " \u00B7 " + CopilotMetrics.shortSummary(last) : ""));
+                }
                 sendBtn.setEnabled(true);
                 explainErrorBtn.setEnabled(true);
                 stopAgentBtn.setVisible(false);
@@ -704,9 +907,12 @@ public class MatsimCopilotPanel extends JPanel {
 
     private int placeholderStart = -1;
     private int placeholderEnd = -1;
+    /** True once streamed text has replaced the "…" of the placeholder. */
+    private boolean placeholderStreamed = false;
 
     private void appendAssistantPlaceholder() {
         StyledDocument doc = chatPane.getStyledDocument();
+        placeholderStreamed = false;
         try {
             placeholderStart = doc.getLength();
             doc.insertString(doc.getLength(), "Copilot: ", boldStyle(new Color(0x008060)));
@@ -731,6 +937,60 @@ public class MatsimCopilotPanel extends JPanel {
             chatPane.setCaretPosition(doc.getLength());
         } catch (Exception ignore) { }
         placeholderStart = placeholderEnd = -1;
+        placeholderStreamed = false;
+    }
+
+    /**
+     * Appends streamed text to the assistant placeholder, in front of its trailing blank line.
+     * The final {@link #replacePlaceholderWithAssistant(String)} replaces it all at once.
+     */
+    private void appendToPlaceholder(String text) {
+        if (placeholderStart < 0 || placeholderEnd < placeholderStart) return;
+        StyledDocument doc = chatPane.getStyledDocument();
+        try {
+            if (!placeholderStreamed) {
+                doc.remove(placeholderStart, 1); // the "…"
+                placeholderEnd--;
+                placeholderStreamed = true;
+            }
+            doc.insertString(placeholderEnd - 2, text, normalStyle());
+            placeholderEnd += text.length();
+            chatPane.setCaretPosition(doc.getLength());
+        } catch (Exception ignore) { }
+    }
+
+    /**
+     * Collects streamed tokens on the worker thread and hands them to the EDT in batches: at most
+     * one {@code invokeLater} is pending at a time, so a fast stream does not flood the event
+     * queue, and the order relative to other {@code invokeLater} calls is kept.
+     */
+    private static final class TokenBatcher implements Consumer<String> {
+        private final Consumer<String> onEdt;
+        private final StringBuilder pending = new StringBuilder();
+        private boolean scheduled = false;
+
+        TokenBatcher(Consumer<String> onEdt) {
+            this.onEdt = onEdt;
+        }
+
+        @Override public void accept(String token) {
+            synchronized (this) {
+                pending.append(token);
+                if (scheduled) return;
+                scheduled = true;
+            }
+            javax.swing.SwingUtilities.invokeLater(this::flush);
+        }
+
+        private void flush() {
+            String text;
+            synchronized (this) {
+                text = pending.toString();
+                pending.setLength(0);
+                scheduled = false;
+            }
+            if (!text.isEmpty()) onEdt.accept(text);
+        }
     }
 
     private void appendStyled(String s, Color color, boolean bold) {
@@ -792,6 +1052,7 @@ public class MatsimCopilotPanel extends JPanel {
 
         appendUser(userText);
         agentCancelRequested = false;
+        agentStreamText = null;
 
         // Build the actual user message that the model will see. On the FIRST turn of a
         // fresh conversation, pre-attach the recent log + a one-line config summary so the
@@ -822,6 +1083,7 @@ public class MatsimCopilotPanel extends JPanel {
             }
             agentUserText = enriched.toString();
         }
+        agentUserText += MatsimKnowledgeBase.relevantConfigDocs(agentUserText);
         final String agentUserTextFinal = agentUserText;
 
         sendBtn.setEnabled(false);
@@ -831,11 +1093,13 @@ public class MatsimCopilotPanel extends JPanel {
         statusLabel.setText("Agent: working…");
 
         MatsimAgentTools tools = new MatsimAgentTools(
-                configFileSupplier, stdOutSource, stdErrSource, runController, this::approveOnEdt);
+                configFileSupplier, stdOutSource, stdErrSource, runController, this::approveOnEdt, metrics);
 
+        TokenBatcher toChat = new TokenBatcher(this::appendAgentToken);
         GeminiAgent.ProgressListener listener = new GeminiAgent.ProgressListener() {
             @Override public void onToolCall(String name, JsonNode args) {
                 javax.swing.SwingUtilities.invokeLater(() -> {
+                    endAgentStream();
                     appendToolCall(name, args);
                     updateAgentStatus();
                 });
@@ -847,7 +1111,14 @@ public class MatsimCopilotPanel extends JPanel {
                 });
             }
             @Override public void onModelText(String text) {
-                javax.swing.SwingUtilities.invokeLater(() -> appendAgentThought(text));
+                javax.swing.SwingUtilities.invokeLater(() -> {
+                    // Already on screen if it was streamed.
+                    if (agentStreamText == null) appendAgentThought(text);
+                    endAgentStream();
+                });
+            }
+            @Override public void onModelToken(String token) {
+                toChat.accept(token);
             }
         };
 
@@ -861,13 +1132,14 @@ public class MatsimCopilotPanel extends JPanel {
                 if (agentCancelRequested) return "[cancelled before start]";
                 if (providerFinal == Provider.GEMINI) {
                     GeminiAgent agent = new GeminiAgent(http, providerFinal.defaultEndpoint,
-                            modelFinal, apiKeyFinal, tools, effectiveAgentSystemPrompt());
+                            modelFinal, apiKeyFinal, tools, effectiveAgentSystemPrompt(), metrics);
                     return agent.runTurn(agentContents, agentUserTextFinal, listener);
                 } else {
                     boolean openrouter = providerFinal == Provider.OPENROUTER;
                     String key = providerFinal == Provider.OLLAMA ? "" : apiKeyFinal;
                     OpenAiToolAgent agent = new OpenAiToolAgent(http, providerFinal.defaultEndpoint,
-                            modelFinal, key, openrouter, tools, effectiveAgentSystemPrompt());
+                            modelFinal, key, openrouter, tools, effectiveAgentSystemPrompt(),
+                            providerFinal.label, metrics);
                     return agent.runTurn(agentMessages, agentUserTextFinal, listener);
                 }
             }
@@ -890,7 +1162,13 @@ public class MatsimCopilotPanel extends JPanel {
                         reply = "[Agent error] " + root.getMessage();
                     }
                 }
-                appendAgentFinal(reply);
+                if (agentStreamText != null && agentStreamText.toString().trim().equals(reply)) {
+                    appendStyled("\n\n", null, false); // the answer has been streamed already
+                    agentStreamText = null;
+                } else {
+                    endAgentStream();
+                    appendAgentFinal(reply);
+                }
                 int chars = 0;
                 for (ObjectNode n : agentContents) chars += n.toString().length();
                 for (ObjectNode n : agentMessages) chars += n.toString().length();
@@ -983,6 +1261,41 @@ public class MatsimCopilotPanel extends JPanel {
                 "Context that will be sent to the AI", JOptionPane.PLAIN_MESSAGE);
     }
 
+    /**
+     * Shows rolling averages of the model calls (time to first token, prefill and generation
+     * time, tokens/s, tokens in/out) and agent tools of this session, with a CSV export of all
+     * recorded calls.
+     */
+    private void showMetricsDialog() {
+        JTextArea ta = new JTextArea(metrics.report(), 16, 110);
+        ta.setEditable(false);
+        ta.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> ta.setText(metrics.report()));
+        JButton exportBtn = new JButton("Export CSV…");
+        exportBtn.addActionListener(e -> {
+            javax.swing.JFileChooser chooser = new javax.swing.JFileChooser();
+            chooser.setSelectedFile(new File("copilot-metrics.csv"));
+            if (chooser.showSaveDialog(ta) != javax.swing.JFileChooser.APPROVE_OPTION) return;
+            try {
+                metrics.exportCsv(chooser.getSelectedFile().toPath());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(ta, "Could not write " + chooser.getSelectedFile() + ": "
+                        + ex.getMessage(), "Export failed", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 2));
+        buttons.add(refreshBtn);
+        buttons.add(exportBtn);
+        JPanel content = new JPanel(new BorderLayout(4, 4));
+        content.add(new JLabel(String.format("Averages over the last %d successful calls; "
+                + "~ marks token counts estimated as characters / 4.", CopilotMetrics.SUMMARY_WINDOW)),
+                BorderLayout.NORTH);
+        content.add(new JScrollPane(ta), BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+        JOptionPane.showMessageDialog(this, content, "Copilot metrics", JOptionPane.PLAIN_MESSAGE);
+    }
+
     /**
      * Approval gateway used by {@link MatsimAgentTools}. Always invoked from the worker
      * thread, so we hop to the EDT for the dialog and wait for the result.
@@ -1062,6 +1375,25 @@ public class MatsimCopilotPanel extends JPanel {
         appendStyled(text.trim() + "\n", new Color(0x556677), false);
     }
 
+    /** Text streamed in the current model response of the agent (EDT only), or null if none. */
+    private StringBuilder agentStreamText = null;
+
+    private void appendAgentToken(String text) {
+        if (agentStreamText == null) {
+            agentStreamText = new StringBuilder();
+            appendStyled("Agent: ", new Color(0x008060), true);
+        }
+        agentStreamText.append(text);
+        appendStyled(text, null, false);
+    }
+
+    /** Ends the streamed model text, if any, e.g. before a tool call is shown. */
+    private void endAgentStream() {
+        if (agentStreamText == null) return;
+        appendStyled("\n", null, false);
+        agentStreamText = null;
+    }
+
     private void appendAgentFinal(String text) {
         appendStyled("Agent: ", new Color(0x008060), true);
         appendStyled((text == null ? "" : text) + "\n\n", null, false);
@@ -1170,15 +1502,21 @@ public class MatsimCopilotPanel extends JPanel {
             + "  - Prefer narrow tools and small limits (e.g. tail_log max_lines=40 when you only\n"
             + "    need the last error).";
 
+    /**
+     * Calls the selected provider. All answers are streamed: every piece of text is passed to
+     * {@code m.token} (on the calling worker thread) as soon as it arrives or is generated, and
+     * the token usage reported by the provider is recorded in {@code m}.
+     */
     private String callProvider(Provider p, String model, String apiKey,
-    		List<Map.Entry<String, String>> hist, String sysPrompt) throws IOException, InterruptedException {
+    		List<Map.Entry<String, String>> hist, String sysPrompt, CopilotMetrics.Measurement m)
+    		throws IOException, InterruptedException {
     	switch (p) {
-    	case OPENAI:     return callOpenAiCompatible(p.defaultEndpoint, model, apiKey, hist, false, sysPrompt);
-    	case OPENROUTER: return callOpenAiCompatible(p.defaultEndpoint, model, apiKey, hist, true, sysPrompt);
-    	case OLLAMA:     return callOpenAiCompatible(p.defaultEndpoint, model, "", hist, false, sysPrompt);
-    	case ANTHROPIC:  return callAnthropic(p.defaultEndpoint, model, apiKey, hist, sysPrompt);
-    	case GEMINI:     return callGemini(p.defaultEndpoint, model, apiKey, hist, sysPrompt);
-    	case JLAMA:      return callJlama(model, hist, sysPrompt);
+    	case OPENAI:     return callOpenAiCompatible(p.defaultEndpoint, model, apiKey, hist, false, sysPrompt, m);
+    	case OPENROUTER: return callOpenAiCompatible(p.defaultEndpoint, model, apiKey, hist, true, sysPrompt, m);
+    	case OLLAMA:     return callOpenAiCompatible(p.defaultEndpoint, model, "", hist, false, sysPrompt, m);
+    	case ANTHROPIC:  return callAnthropic(p.defaultEndpoint, model, apiKey, hist, sysPrompt, m);
+    	case GEMINI:     return callGemini(p.defaultEndpoint, model, apiKey, hist, sysPrompt, m);
+    	case JLAMA:      return callJlama(model, hist, sysPrompt, m);
     	default:         throw new IOException("Unknown provider: " + p);
     	}
     }
@@ -1186,10 +1524,11 @@ public class MatsimCopilotPanel extends JPanel {
     /**
      * Embedded (pure-Java) chat via JLama. Loads the model on first use into
      * {@link JlamaService#DEFAULT_MODEL_DIR}, downloading it from HuggingFace if
-     * necessary. Subsequent calls reuse the in-memory model.
+     * necessary. Subsequent calls reuse the in-memory model and, within one chat, the KV
+     * cache of the previous turns. Tokens are passed to the measurement while they are generated.
      */
-    private String callJlama(String model, List<Map.Entry<String, String>> hist, String sysPrompt)
-            throws IOException {
+    private String callJlama(String model, List<Map.Entry<String, String>> hist, String sysPrompt,
+            CopilotMetrics.Measurement measurement) throws IOException {
         if (!JlamaService.isAvailable()) {
             throw new IOException("Embedded (Java) provider is not available - the JLama "
                     + "library is not on the classpath. Add com.github.tjake:jlama-core to "
@@ -1204,17 +1543,25 @@ public class MatsimCopilotPanel extends JPanel {
         } else {
             latestUser = "";
         }
-        return JlamaService.chat(model, sysPrompt, prior, latestUser, 512, 0.3f);
+        String reply = JlamaService.chat(model, sysPrompt, prior, latestUser, 512, 0.3f, measurement::token, chatSessionId);
+        JlamaService.Usage usage = JlamaService.lastUsage();
+        if (usage != null) {
+            measurement.usage(usage.promptTokens(), usage.generatedTokens());
+            measurement.timing(usage.promptMillis(), usage.generateMillis());
+        }
+        return reply;
     }
 
-    /** OpenAI-compatible Chat Completions (used for OpenAI, OpenRouter, and Ollama). */
+    /** OpenAI-compatible Chat Completions (used for OpenAI, OpenRouter, and Ollama), streamed. */
     private String callOpenAiCompatible(String endpoint, String model, String apiKey,
-            List<Map.Entry<String, String>> hist, boolean openrouter, String sysPrompt) throws IOException, InterruptedException {
-StringBuilder body = new StringBuilder();
-body.append("{\"model\":").append(jsonStr(model)).append(",");
-body.append("\"messages\":[");
-// Use sysPrompt instead of SYSTEM_PROMPT
-body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).append("}");
+            List<Map.Entry<String, String>> hist, boolean openrouter, String sysPrompt,
+            CopilotMetrics.Measurement measurement) throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder();
+        body.append("{\"model\":").append(jsonStr(model)).append(",");
+        body.append("\"stream\":true,");
+        body.append("\"stream_options\":{\"include_usage\":true},");
+        body.append("\"messages\":[");
+        body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).append("}");
         for (Map.Entry<String, String> m : hist) {
             body.append(",{\"role\":").append(jsonStr(m.getKey()))
                 .append(",\"content\":").append(jsonStr(m.getValue())).append("}");
@@ -1223,7 +1570,8 @@ body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).appe
 
         HttpRequest.Builder rb = HttpRequest.newBuilder(URI.create(endpoint))
                 .timeout(Duration.ofSeconds(120))
-                .header("Content-Type", "application/json");
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream");
         if (apiKey != null && !apiKey.isBlank()) {
             rb.header("Authorization", "Bearer " + apiKey);
         }
@@ -1232,9 +1580,9 @@ body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).appe
             rb.header("X-Title", "MATSim Copilot");
         }
         HttpRequest req = rb.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
-        HttpResponse<String> resp;
+        HttpResponse<Stream<String>> resp;
         try {
-            resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            resp = ServerSentEvents.send(http, req);
         } catch (java.net.ConnectException ce) {
             throw new IOException("Could not connect to " + endpoint
                     + ".\nFor Ollama: install it from https://ollama.com and start the server "
@@ -1242,58 +1590,99 @@ body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).appe
                     + model + "` once.", ce);
         }
         if (resp.statusCode() / 100 != 2) {
-            String respBody = resp.body();
-            if (resp.statusCode() == 404 && respBody != null && respBody.contains("not found")
+            String respBody = ServerSentEvents.body(resp);
+            if (resp.statusCode() == 404 && respBody.contains("not found")
                     && endpoint.contains("11434")) {
                 throw new IOException("Ollama: model '" + model + "' is not installed.\n"
                         + "Run this once in a terminal:\n    ollama pull " + model);
             }
             throw new IOException("HTTP " + resp.statusCode() + ": " + respBody);
         }
-        String content = JsonMini.findStringValue(resp.body(), "content");
-        if (content == null) throw new IOException("No content in response: " + resp.body());
+        // Chunks: { "choices":[{"delta":{"content":"..."}}] }; OpenRouter reports late errors in-band.
+        // The last chunk has no choices but the "usage".
+        String content = ServerSentEvents.readText(resp, event -> {
+            if (event.has("error")) {
+                throw new IOException("Stream error: " + event.path("error").path("message").asText(event.get("error").toString()));
+            }
+            JsonNode usage = event.path("usage");
+            if (usage.isObject()) {
+                measurement.usage(usage.path("prompt_tokens").asInt(-1), usage.path("completion_tokens").asInt(-1));
+                measurement.cachedTokens(usage.path("prompt_tokens_details").path("cached_tokens").asInt(0));
+            }
+            return event.path("choices").path(0).path("delta").path("content").asText("");
+        }, measurement::token);
+        if (content.isEmpty()) throw new IOException("No content in response.");
         return content;
     }
 
     private String callAnthropic(String endpoint, String model, String apiKey,
-    		List<Map.Entry<String, String>> hist, String sysPrompt) throws IOException, InterruptedException {
+    		List<Map.Entry<String, String>> hist, String sysPrompt, CopilotMetrics.Measurement measurement)
+    		throws IOException, InterruptedException {
     	StringBuilder body = new StringBuilder();
     	body.append("{\"model\":").append(jsonStr(model)).append(",");
     	body.append("\"max_tokens\":2048,");
-    	// Use sysPrompt instead of SYSTEM_PROMPT
-    	body.append("\"system\":").append(jsonStr(sysPrompt)).append(",");
+    	body.append("\"stream\":true,");
+    	// Prompt caching: one breakpoint after the system prompt and one after the latest turn,
+    	// so the next turn reads the whole conversation so far from the cache. Prefixes below
+    	// the model's minimum cacheable length are simply not cached.
+    	body.append("\"system\":[{\"type\":\"text\",\"text\":").append(jsonStr(sysPrompt))
+    	    .append(",\"cache_control\":{\"type\":\"ephemeral\"}}],");
     	body.append("\"messages\":[");
-        boolean first = true;
-        for (Map.Entry<String, String> m : hist) {
-            if (!first) body.append(",");
-            first = false;
-            body.append("{\"role\":").append(jsonStr(m.getKey()))
-                .append(",\"content\":").append(jsonStr(m.getValue())).append("}");
+        for (int i = 0; i < hist.size(); i++) {
+            Map.Entry<String, String> m = hist.get(i);
+            if (i > 0) body.append(",");
+            body.append("{\"role\":").append(jsonStr(m.getKey())).append(",\"content\":");
+            if (i == hist.size() - 1) {
+                body.append("[{\"type\":\"text\",\"text\":").append(jsonStr(m.getValue()))
+                    .append(",\"cache_control\":{\"type\":\"ephemeral\"}}]}");
+            } else {
+                body.append(jsonStr(m.getValue())).append("}");
+            }
         }
         body.append("]}");
 
         HttpRequest req = HttpRequest.newBuilder(URI.create(endpoint))
                 .timeout(Duration.ofSeconds(120))
                 .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
                 .header("x-api-key", apiKey)
                 .header("anthropic-version", "2023-06-01")
                 .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<Stream<String>> resp = ServerSentEvents.send(http, req);
         if (resp.statusCode() / 100 != 2) {
-            throw new IOException("HTTP " + resp.statusCode() + ": " + resp.body());
+            throw new IOException("HTTP " + resp.statusCode() + ": " + ServerSentEvents.body(resp));
         }
-        // Anthropic: { "content": [ { "type":"text", "text":"..." } ] }
-        String text = JsonMini.findStringValue(resp.body(), "text");
-        if (text == null) throw new IOException("No text in response: " + resp.body());
+        // Anthropic: { "type":"content_block_delta", "delta":{ "type":"text_delta", "text":"..." } },
+        // errors after the headers (e.g. overloaded) arrive as { "type":"error", "error":{...} }.
+        // Input tokens come with "message_start", the output tokens with the final "message_delta".
+        String text = ServerSentEvents.readText(resp, event -> {
+            String type = event.path("type").asText("");
+            if (type.equals("error")) {
+                throw new IOException("Stream error: " + event.path("error").path("message").asText(event.toString()));
+            }
+            if (type.equals("message_start")) {
+                // input_tokens only counts the tokens after the last cache breakpoint.
+                JsonNode usage = event.path("message").path("usage");
+                int cacheRead = usage.path("cache_read_input_tokens").asInt(0);
+                measurement.usage(usage.path("input_tokens").asInt(-1) + cacheRead
+                        + usage.path("cache_creation_input_tokens").asInt(0), -1);
+                measurement.cachedTokens(cacheRead);
+            } else if (type.equals("message_delta")) {
+                measurement.usage(-1, event.path("usage").path("output_tokens").asInt(-1));
+            }
+            if (!type.equals("content_block_delta")) return "";
+            return event.path("delta").path("text").asText("");
+        }, measurement::token);
+        if (text.isEmpty()) throw new IOException("No text in response.");
         return text;
     }
 
     private String callGemini(String endpointTemplate, String model, String apiKey,
-            List<Map.Entry<String, String>> hist, String sysPrompt) throws IOException, InterruptedException {
-    	String endpoint = endpointTemplate.replace("{model}", model) + "?key=" + apiKey;
+            List<Map.Entry<String, String>> hist, String sysPrompt, CopilotMetrics.Measurement measurement)
+            throws IOException, InterruptedException {
+    	String endpoint = streamingGeminiEndpoint(endpointTemplate, model, apiKey);
 
     	StringBuilder body = new StringBuilder();
-    	// Use sysPrompt instead of SYSTEM_PROMPT
     	body.append("{\"systemInstruction\":{\"parts\":[{\"text\":")
     	.append(jsonStr(sysPrompt)).append("}]},");
     	body.append("\"contents\":[");
@@ -1311,16 +1700,40 @@ body.append("{\"role\":\"system\",\"content\":").append(jsonStr(sysPrompt)).appe
                 .timeout(Duration.ofSeconds(120))
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<Stream<String>> resp = ServerSentEvents.send(http, req);
         if (resp.statusCode() / 100 != 2) {
-            throw new IOException(formatGeminiError(model, resp.statusCode(), resp.body()));
+            throw new IOException(formatGeminiError(model, resp.statusCode(), ServerSentEvents.body(resp)));
         }
-        // Gemini: { "candidates":[{"content":{"parts":[{"text":"..."}]}}] }
-        String text = JsonMini.findStringValue(resp.body(), "text");
-        if (text == null) throw new IOException("No text in response: " + resp.body());
+        // Gemini: every chunk is a full response { "candidates":[{"content":{"parts":[{"text":"..."}]}}] }
+        // carrying only the new text.
+        String text = ServerSentEvents.readText(resp, event -> {
+            if (event.has("error")) {
+                throw new IOException(formatGeminiError(model, event.path("error").path("code").asInt(500), event.toString()));
+            }
+            JsonNode usage = event.path("usageMetadata"); // running totals
+            if (usage.isObject()) {
+                measurement.usage(usage.path("promptTokenCount").asInt(-1),
+                        usage.path("candidatesTokenCount").asInt(0) + usage.path("thoughtsTokenCount").asInt(0));
+                measurement.cachedTokens(usage.path("cachedContentTokenCount").asInt(0)); // implicit caching
+            }
+            StringBuilder sb = new StringBuilder();
+            for (JsonNode part : event.path("candidates").path(0).path("content").path("parts")) {
+                if (!part.path("thought").asBoolean(false)) sb.append(part.path("text").asText(""));
+            }
+            return sb.toString();
+        }, measurement::token);
+        if (text.isEmpty()) throw new IOException("No text in response.");
         return text;
     }
 
+    /**
+     * The SSE variant of a {@code ...:generateContent} endpoint template, with model and key filled in.
+     */
+    static String streamingGeminiEndpoint(String endpointTemplate, String model, String apiKey) {
+        return endpointTemplate.replace("{model}", model).replace(":generateContent", ":streamGenerateContent")
+                + "?alt=sse&key=" + apiKey;
+    }
+
     /**
      * Translate a Gemini error response (404 / 429 / 503 / …) to a single, friendly
      * line. Falls back to the raw body if the JSON cannot be parsed.
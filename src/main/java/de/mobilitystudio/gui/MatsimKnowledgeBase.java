@@ -11,6 +11,10 @@
 
 package de.mobilitystudio.gui;
 
+import java.util.List;
+
+import de.mobilitystudio.config.ConfigDocIndex;
+
 /**
  * Static MATSim knowledge and dynamic environment info injected into the Copilot.
  *
@@ -51,13 +55,41 @@ final class MatsimKnowledgeBase {
             + "- **'Memory' text field**: controls JVM -Xmx. Recommend increasing this for OutOfMemoryError.\n"
             + "\n"
             + "### MATSim Config Primer\n"
-            + "Canonical module/parameter names (do not invent variants):\n"
+            + "Canonical module/parameter names (do not invent variants); the descriptions of the parameters "
+            + "relevant to a question are attached to it automatically:\n"
             + "- **Top-level modules**: `controller` (preferred over controler), `network`, `plans`, `facilities`, `transit`, `vehicles`, `qsim`, `scoring`, `routing`, `replanning`.\n"
-            + "- **controller**: `outputDirectory`, `firstIteration`, `lastIteration`, `overwriteFiles` (values: failIfDirectoryExists, deleteDirectoryIfExists, overwriteExistingFiles).\n"
-            + "- **scoring**: `scoringParameters` -> `activityParams` (for each activity like home/work/leisure, needs typicalDuration) -> `modeParams`.\n"
-            + "- **replanning**: `strategysettings` with strategyName and weight.\n"
             + "- **Documentation**: https://www.matsim.org/javadoc/, https://github.com/matsim-org/matsim-libs\n";
 
+    /** Number of parameter descriptions attached to a Copilot request. */
+    static final int RELEVANT_PARAMS = 6;
+    private static final int MAX_COMMENT_CHARS = 300;
+
+    /**
+     * The descriptions of the config parameters most relevant to the given text (BM25 over the
+     * comments of all config groups of this MATSim build), as a block to append to a user message.
+     * Returns an empty string while the index is still being built or if nothing matches.
+     */
+    static String relevantConfigDocs(String query) {
+        ConfigDocIndex index = ConfigDocIndex.ifReady();
+        if (index == null) return "";
+        List<ConfigDocIndex.Hit> hits = index.search(query, RELEVANT_PARAMS);
+        if (hits.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("\n\n---\nPossibly relevant config parameters (docs of this MATSim build):\n");
+        for (ConfigDocIndex.Hit h : hits) {
+            sb.append("- ").append(h.path()).append(" / ").append(h.param());
+            if (h.defaultValue() != null && !h.defaultValue().isBlank()) {
+                sb.append(" (default: ").append(h.defaultValue()).append(')');
+            }
+            String comment = h.comment().replaceAll("\\s+", " ");
+            if (!comment.isEmpty()) {
+                sb.append(": ").append(comment.length() <= MAX_COMMENT_CHARS ? comment
+                        : comment.substring(0, MAX_COMMENT_CHARS) + "…");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
     /** Assembled extra system-prompt block containing dynamic JVM info and the user's custom instructions. */
     static String extraSystemPrompt(String customInstructions) {
         StringBuilder sb = new StringBuilder();
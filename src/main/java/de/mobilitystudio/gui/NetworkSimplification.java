@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.algorithms.MultimodalNetworkCleaner;
+import org.matsim.core.network.algorithms.NetworkSimplifier;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.counts.Counts;
+import org.matsim.counts.MatsimCountsReader;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Pre-processing action that cleans and simplifies the network referenced by a config.
+ *
+ * <p>The network is cleaned separately for each network mode of the routing config
+ * ({@link MultimodalNetworkCleaner}): a mode is removed from the links outside the largest
+ * strongly connected component of that mode, and a link is only deleted if no mode is
+ * left. Links of other modes, e.g. pt-only links of the transit schedule, are not touched.
+ * Then chains of links over pass-through nodes with identical attributes are merged into
+ * single links ({@link NetworkSimplifier}). Fewer nodes and links make both the QSim and
+ * the routers faster. Links referenced by the transit schedule (route link sequences and
+ * stop facilities) or by the counts are never merged, so that these files still match the
+ * simplified network.</p>
+ *
+ * <p>Next to the simplified network a CSV mapping file is written with one row per
+ * original link and the id of the simplified link it became part of. Links removed by
+ * the cleaner have an empty simplified id. The mapping is needed to translate counts,
+ * link-based events or routes of existing plans to the new network.</p>
+ *
+ * @author ikaddoura
+ */
+final class NetworkSimplification {
+
+    private static final Logger log = LogManager.getLogger(NetworkSimplification.class);
+
+    private static final String SUFFIX = "-simplified";
+
+    /** Result of a simplification run, used for the summary dialog. */
+    record Result(File networkFile, File mappingFile, int nodesBefore, int nodesAfter, int linksBefore, int linksAfter,
+                  int linksKept) { }
+
+    private NetworkSimplification() { }
+
+    /**
+     * Clean and simplify the network referenced by the given config.
+     *
+     * @param configFile the config whose {@code network.inputNetworkFile} is simplified
+     * @return the written network and mapping files plus node and link counts
+     */
+    static Result simplify(File configFile) throws IOException {
+        Config config = ConfigUtils.loadConfig(configFile.getAbsolutePath());
+        String inputNetwork = config.network().getInputFile();
+        if (inputNetwork == null || inputNetwork.isBlank()) {
+            throw new IOException("The config does not reference a network file (network.inputNetworkFile is empty).");
+        }
+        URL networkUrl = config.network().getInputFileURL(config.getContext());
+
+        String baseName = PopulationSampler.stripXmlExtension(new File(inputNetwork).getName()) + SUFFIX;
+        File outDir = configFile.getAbsoluteFile().getParentFile();
+        File simplifiedNetwork = new File(outDir, baseName + ".xml.gz");
+        File mappingFile = new File(outDir, baseName + "-linkMapping.csv");
+
+        // The network is read without coordinate transformation, so the CRS attribute of the
+        // input (see detectCrsFromNetworkFile) is written unchanged to the simplified network.
+        Network network = NetworkUtils.createNetwork();
+        new MatsimNetworkReader(network).parse(networkUrl);
+        int nodesBefore = network.getNodes().size();
+        int linksBefore = network.getLinks().size();
+        log.info("Simplifying " + networkUrl + " with " + nodesBefore + " nodes and " + linksBefore + " links.");
+
+        // The algorithms below modify the network in place; removed links keep their node
+        // references, which is all that is needed to rebuild the link mapping afterwards.
+        List<Link> originalLinks = new ArrayList<>(network.getLinks().values());
+
+        // One mode at a time, so that e.g. a bike network that is only connected to the car
+        // network at a few nodes is not cut down to the car component.
+        for (String mode : new TreeSet<>(config.routing().getNetworkModes())) {
+            new MultimodalNetworkCleaner(network).run(Set.of(mode));
+        }
+        List<Link> cleanedLinks = new ArrayList<>(network.getLinks().values());
+        Set<Id<Node>> cleanedNodes = new HashSet<>(network.getNodes().keySet());
+        log.info("Cleaned network modes " + config.routing().getNetworkModes() + ": "
+                + (linksBefore - cleanedLinks.size()) + " links removed.");
+
+        Set<Id<Link>> referencedLinks = referencedLinks(config);
+        log.info(referencedLinks.size() + " links are referenced by the transit schedule or counts and are not merged.");
+        NetworkSimplifier simplifier = new NetworkSimplifier();
+        simplifier.setMergeLinkStats(false);
+        simplifier.registerIsMergeablePredicate((inLink, outLink) ->
+                !referencedLinks.contains(inLink.getId()) && !referencedLinks.contains(outLink.getId()));
+        simplifier.run(network);
+
+        new NetworkWriter(network).write(simplifiedNetwork.getAbsolutePath());
+        writeMapping(mappingFile, buildLinkMapping(originalLinks, cleanedLinks, cleanedNodes, network));
+
+        log.info("Wrote simplified network with " + network.getNodes().size() + " nodes and "
+                + network.getLinks().size() + " links to " + simplifiedNetwork);
+        int linksKept = (int) referencedLinks.stream().filter(network.getLinks()::containsKey).count();
+        return new Result(simplifiedNetwork, mappingFile,
+                nodesBefore, network.getNodes().size(), linksBefore, network.getLinks().size(), linksKept);
+    }
+
+    /**
+     * The links that other input files of the config refer to by id: the links of the transit
+     * routes and stop facilities (if transit is used) and the counted links.
+     */
+    private static Set<Id<Link>> referencedLinks(Config config) {
+        Set<Id<Link>> links = new HashSet<>();
+        String scheduleFile = config.transit().getTransitScheduleFile();
+        if (config.transit().isUseTransit() && scheduleFile != null && !scheduleFile.isBlank()) {
+            // Read without coordinate transformation, only the link ids are needed.
+            Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+            new TransitScheduleReader(scenario).readURL(ConfigGroup.getInputFileURL(config.getContext(), scheduleFile));
+            for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+                if (stop.getLinkId() != null) links.add(stop.getLinkId());
+            }
+            for (TransitLine line : scenario.getTransitSchedule().getTransitLines().values()) {
+                for (TransitRoute route : line.getRoutes().values()) {
+                    NetworkRoute networkRoute = route.getRoute();
+                    if (networkRoute == null) continue;
+                    links.add(networkRoute.getStartLinkId());
+                    links.addAll(networkRoute.getLinkIds());
+                    links.add(networkRoute.getEndLinkId());
+                }
+            }
+        }
+        String countsFile = config.counts().getCountsFileName();
+        if (countsFile != null && !countsFile.isBlank()) {
+            Counts<Link> counts = new Counts<>();
+            new MatsimCountsReader(counts).parse(ConfigGroup.getInputFileURL(config.getContext(), countsFile));
+            links.addAll(counts.getCounts().keySet());
+        }
+        return links;
+    }
+
+    /**
+     * Maps each original link id to the id of the simplified link it is part of. A merged
+     * link connects two surviving nodes; the links of the cleaned network it replaces form
+     * a path between these nodes that passes only through nodes removed by the simplifier,
+     * which is found by a depth-first search over the not yet assigned links. Links and
+     * nodes removed by the cleaner are never part of such a path.
+     */
+    private static Map<Id<Link>, Id<Link>> buildLinkMapping(List<Link> originalLinks, List<Link> cleanedLinks,
+                                                            Set<Id<Node>> cleanedNodes, Network simplified) {
+        Map<Id<Link>, Id<Link>> mapping = new LinkedHashMap<>();
+        for (Link link : originalLinks) {
+            mapping.put(link.getId(), null);
+        }
+        Map<Id<Node>, List<Link>> outLinks = new HashMap<>();
+        for (Link link : cleanedLinks) {
+            outLinks.computeIfAbsent(link.getFromNode().getId(), k -> new ArrayList<>()).add(link);
+        }
+
+        Set<Id<Node>> removedNodes = new HashSet<>(cleanedNodes);
+        removedNodes.removeAll(simplified.getNodes().keySet());
+
+        for (Link link : simplified.getLinks().values()) {
+            if (mapping.containsKey(link.getId())) {
+                mapping.put(link.getId(), link.getId());
+                continue;
+            }
+            List<Link> path = new ArrayList<>();
+            if (findChain(link.getFromNode().getId(), link.getToNode().getId(), outLinks, removedNodes, mapping,
+                    simplified, path, new HashSet<>())) {
+                for (Link part : path) {
+                    mapping.put(part.getId(), link.getId());
+                }
+            } else {
+                log.warn("Could not trace the original links of simplified link " + link.getId());
+            }
+        }
+        return mapping;
+    }
+
+    private static boolean findChain(Id<Node> current, Id<Node> target, Map<Id<Node>, List<Link>> outLinks,
+                                     Set<Id<Node>> removedNodes, Map<Id<Link>, Id<Link>> mapping,
+                                     Network simplified, List<Link> path, Set<Id<Node>> visited) {
+        if (!visited.add(current)) {
+            return false;
+        }
+        for (Link link : outLinks.getOrDefault(current, List.of())) {
+            // skip links that were kept as they are or already belong to another merged link
+            if (mapping.get(link.getId()) != null || simplified.getLinks().containsKey(link.getId())) {
+                continue;
+            }
+            Id<Node> next = link.getToNode().getId();
+            path.add(link);
+            if (next.equals(target)
+                    || (removedNodes.contains(next)
+                        && findChain(next, target, outLinks, removedNodes, mapping, simplified, path, visited))) {
+                return true;
+            }
+            path.remove(path.size() - 1);
+        }
+        return false;
+    }
+
+    private static void writeMapping(File mappingFile, Map<Id<Link>, Id<Link>> mapping) throws IOException {
+        try (BufferedWriter writer = IOUtils.getBufferedWriter(mappingFile.getAbsolutePath())) {
+            writer.write("originalLinkId;simplifiedLinkId");
+            writer.newLine();
+            for (Map.Entry<Id<Link>, Id<Link>> entry : mapping.entrySet()) {
+                writer.write(entry.getKey() + ";" + (entry.getValue() == null ? "" : entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+}
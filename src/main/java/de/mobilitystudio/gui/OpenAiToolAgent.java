@@ -20,6 +20,7 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +29,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
 
 /**
  * Multi-step agent loop for any OpenAI-compatible Chat Completions endpoint.
@@ -46,6 +48,12 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * <p>The same {@link MatsimAgentTools.ToolSpec} JSON-Schema is reused; only the
  * request/response envelopes are different from {@link GeminiAgent}.</p>
  *
+ * <p>Prompt caching: the tool declarations are serialized once per process and every request
+ * starts with the same tools and system message, so providers with automatic prefix caching
+ * (OpenAI, and Ollama / llama-server for their KV cache) reuse it across the iterations of a
+ * turn. OpenAI additionally gets a {@code prompt_cache_key}; Anthropic models on OpenRouter
+ * need an explicit {@code cache_control} breakpoint on the system message.</p>
+ *
  * @author ikaddoura / Claude
  */
 final class OpenAiToolAgent {
@@ -53,6 +61,9 @@ final class OpenAiToolAgent {
     private static final Logger log = LogManager.getLogger(OpenAiToolAgent.class);
     private static final ObjectMapper M = new ObjectMapper();
 
+    /** The {@code tools} array, serialized once: the tool specs never change at runtime. */
+    private static final String TOOLS_JSON = toolsJson();
+
     private static final int MAX_ITERATIONS = 20;
     /** Hard cap on how many older tool messages we keep verbatim; the rest are compacted. */
     private static final int OLD_TOOL_RESULT_CHARS = 200;
@@ -64,9 +75,12 @@ final class OpenAiToolAgent {
     private final boolean openRouter;  // adds the recommended OpenRouter headers
     private final MatsimAgentTools tools;
     private final String systemPrompt;
+    private final String providerLabel; // for the metrics, e.g. "Ollama (local)"
+    private final CopilotMetrics metrics;
 
     OpenAiToolAgent(HttpClient http, String endpoint, String model, String apiKey,
-                    boolean openRouter, MatsimAgentTools tools, String systemPrompt) {
+                    boolean openRouter, MatsimAgentTools tools, String systemPrompt,
+                    String providerLabel, CopilotMetrics metrics) {
         this.http = http;
         this.endpoint = endpoint;
         this.model = model;
@@ -74,6 +88,8 @@ final class OpenAiToolAgent {
         this.openRouter = openRouter;
         this.tools = tools;
         this.systemPrompt = systemPrompt;
+        this.providerLabel = providerLabel;
+        this.metrics = metrics != null ? metrics : new CopilotMetrics();
     }
 
     /**
@@ -97,7 +113,7 @@ final class OpenAiToolAgent {
                 throw new InterruptedException("Agent cancelled by user.");
             }
             compactOldToolResults(messages);
-            ObjectNode response = call(messages);
+            ObjectNode response = call(messages, listener);
 
             JsonNode choices = response.path("choices");
             if (!choices.isArray() || choices.isEmpty()) {
@@ -154,30 +170,44 @@ final class OpenAiToolAgent {
 
     // -------------------------------------------------------------------- HTTP
 
-    private ObjectNode call(List<ObjectNode> messages) throws IOException, InterruptedException {
+    /**
+     * Streams one completion and assembles it into the shape of a non-streamed response:
+     * {@code {"choices":[{"message":{"role":"assistant","content":...,"tool_calls":[...]}}]}}.
+     * Text is passed to the listener as it arrives; tool calls are put together from their
+     * deltas (id and name come first, the arguments JSON in pieces), keyed by {@code index}.
+     */
+    private ObjectNode call(List<ObjectNode> messages, GeminiAgent.ProgressListener listener)
+            throws IOException, InterruptedException {
         ObjectNode body = M.createObjectNode();
         body.put("model", model);
+        // The static part (tools, system message) first and byte-identical in every request.
+        body.putRawValue("tools", new RawValue(TOOLS_JSON));
+        body.put("tool_choice", "auto");
 
+        boolean anthropicViaOpenRouter = openRouter && model.startsWith("anthropic/");
         ArrayNode msgs = M.createArrayNode();
-        for (ObjectNode m : messages) msgs.add(m);
+        for (ObjectNode m : messages) {
+            if (anthropicViaOpenRouter && msgs.isEmpty() && "system".equals(m.path("role").asText())) {
+                // Caches tools and system prompt; Anthropic ignores breakpoints on shorter prefixes.
+                ObjectNode sys = M.createObjectNode();
+                sys.put("role", "system");
+                sys.putArray("content").addObject()
+                        .put("type", "text")
+                        .put("text", m.path("content").asText())
+                        .putObject("cache_control").put("type", "ephemeral");
+                msgs.add(sys);
+            } else {
+                msgs.add(m);
+            }
+        }
         body.set("messages", msgs);
-
-        // tools[]
-        ArrayNode toolsArr = M.createArrayNode();
-        for (MatsimAgentTools.ToolSpec t : MatsimAgentTools.toolSpecs()) {
-            ObjectNode wrapper = M.createObjectNode();
-            wrapper.put("type", "function");
-            ObjectNode fn = M.createObjectNode();
-            fn.put("name", t.name);
-            fn.put("description", t.description);
-            fn.set("parameters", t.parameters);
-            wrapper.set("function", fn);
-            toolsArr.add(wrapper);
+        if (endpoint.contains("api.openai.com")) {
+            // Routes requests with the same prefix to the same cache.
+            body.put("prompt_cache_key", "matsim-copilot-" + Integer.toHexString(systemPrompt.hashCode()));
         }
-        body.set("tools", toolsArr);
-        body.put("tool_choice", "auto");
-        // Streaming off (we want the whole response).
-        body.put("stream", false);
+        body.put("stream", true);
+        // Ask for a final chunk with the token usage; servers that do not know the option ignore it.
+        body.putObject("stream_options").put("include_usage", true);
 
         String bodyStr = M.writeValueAsString(body);
         HttpRequest.Builder rb = HttpRequest.newBuilder(URI.create(endpoint))
@@ -191,32 +221,115 @@ final class OpenAiToolAgent {
             rb.header("X-Title", "MATSim Copilot");
         }
         HttpRequest req = rb.POST(HttpRequest.BodyPublishers.ofString(bodyStr)).build();
-        HttpResponse<String> resp;
+        CopilotMetrics.Measurement m = metrics.start(CopilotMetrics.Kind.AGENT_STEP, providerLabel, model,
+                bodyStr.length(), listener == null ? null : listener::onModelToken);
+        try {
+            ObjectNode response = send(req, m);
+            m.finish(response.toString(), null);
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            m.finish(null, e);
+            throw e;
+        }
+    }
+
+    /** Sends the request and assembles the streamed response; text is passed on through the measurement. */
+    private ObjectNode send(HttpRequest req, CopilotMetrics.Measurement m) throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> resp;
         try {
-            resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            resp = ServerSentEvents.send(http, req);
         } catch (ConnectException ce) {
             throw new IOException("Could not connect to " + endpoint
                     + " - is the local model server running? "
                     + "(For Ollama: install from https://ollama.com and run `ollama serve`.)", ce);
         }
         if (resp.statusCode() / 100 != 2) {
-            String respBody = resp.body();
-            if (resp.statusCode() == 404 && respBody != null && respBody.contains("not found")
+            String respBody = ServerSentEvents.body(resp);
+            if (resp.statusCode() == 404 && respBody.contains("not found")
                     && endpoint.contains("11434")) {
                 throw new IOException("Ollama: model '" + model + "' is not installed.\n"
                         + "Run this once in a terminal:\n    ollama pull " + model);
             }
             throw new IOException("HTTP " + resp.statusCode() + ": " + respBody);
         }
-        JsonNode parsed = M.readTree(resp.body());
-        if (!(parsed instanceof ObjectNode)) {
-            throw new IOException("Unexpected response (not an object): " + resp.body());
+
+        StringBuilder content = new StringBuilder();
+        List<ObjectNode> toolCalls = new ArrayList<>();
+        ServerSentEvents.forEachEvent(resp, event -> {
+            if (event.has("error")) {
+                throw new IOException("Stream error: " + event.path("error").path("message").asText(event.get("error").toString()));
+            }
+            JsonNode usage = event.path("usage");
+            if (usage.isObject()) {
+                m.usage(usage.path("prompt_tokens").asInt(-1), usage.path("completion_tokens").asInt(-1));
+                m.cachedTokens(usage.path("prompt_tokens_details").path("cached_tokens").asInt(0));
+            }
+            JsonNode delta = event.path("choices").path(0).path("delta");
+            String text = delta.path("content").asText("");
+            if (!text.isEmpty()) {
+                content.append(text);
+                m.token(text);
+            }
+            for (JsonNode d : delta.path("tool_calls")) {
+                // Ollama sends whole calls without an index: a new id means a new call.
+                int index = d.has("index") ? d.get("index").asInt()
+                        : d.hasNonNull("id") ? toolCalls.size() : Math.max(toolCalls.size() - 1, 0);
+                while (toolCalls.size() <= index) {
+                    ObjectNode call = M.createObjectNode();
+                    call.put("type", "function");
+                    call.putObject("function").put("name", "").put("arguments", "");
+                    toolCalls.add(call);
+                }
+                ObjectNode call = toolCalls.get(index);
+                ObjectNode fn = (ObjectNode) call.get("function");
+                if (d.hasNonNull("id")) call.put("id", d.get("id").asText());
+                JsonNode fd = d.path("function");
+                if (fd.hasNonNull("name")) fn.put("name", fn.get("name").asText() + fd.get("name").asText());
+                if (fd.hasNonNull("arguments")) {
+                    JsonNode a = fd.get("arguments");
+                    fn.put("arguments", fn.get("arguments").asText() + (a.isTextual() ? a.asText() : a.toString()));
+                }
+            }
+        });
+
+        ObjectNode message = M.createObjectNode();
+        message.put("role", "assistant");
+        if (content.length() > 0 || toolCalls.isEmpty()) message.put("content", content.toString());
+        else message.putNull("content");
+        if (!toolCalls.isEmpty()) {
+            ArrayNode calls = message.putArray("tool_calls");
+            for (ObjectNode call : toolCalls) {
+                ObjectNode fn = (ObjectNode) call.get("function");
+                if (fn.get("arguments").asText().isBlank()) fn.put("arguments", "{}");
+                calls.add(call);
+            }
         }
-        return (ObjectNode) parsed;
+        ObjectNode response = M.createObjectNode();
+        response.putArray("choices").addObject().set("message", message);
+        return response;
     }
 
     // -------------------------------------------------------------------- helpers
 
+    private static String toolsJson() {
+        ArrayNode toolsArr = M.createArrayNode();
+        for (MatsimAgentTools.ToolSpec t : MatsimAgentTools.toolSpecs()) {
+            ObjectNode wrapper = M.createObjectNode();
+            wrapper.put("type", "function");
+            ObjectNode fn = M.createObjectNode();
+            fn.put("name", t.name);
+            fn.put("description", t.description);
+            fn.set("parameters", t.parameters);
+            wrapper.set("function", fn);
+            toolsArr.add(wrapper);
+        }
+        try {
+            return M.writeValueAsString(toolsArr);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the tool specs", e);
+        }
+    }
+
     static ObjectNode msg(String role, String content) {
         ObjectNode m = M.createObjectNode();
         m.put("role", role);
@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.ConfigWriter;
+
+/**
+ * Pre-processing action that initializes a new run from the {@code output_plans} of an
+ * earlier run.
+ *
+ * <p>Plans are copied together with their routes and scores, so the persons do not have to
+ * be routed again in iteration 0. This is useful for calibration loops where only scoring
+ * or replanning parameters change between runs. Either the selected plan or the best
+ * {@code k} plans by score are kept per person.</p>
+ *
+ * <p>Like {@link PopulationSampler}, the plans are streamed and a config variant pointing
+ * to the new plans file is written next to the loaded config.</p>
+ *
+ * @author ikaddoura
+ */
+final class PlansWarmStart {
+
+    private static final Logger log = LogManager.getLogger(PlansWarmStart.class);
+
+    private static final Comparator<Plan> BY_SCORE_DESCENDING = Comparator.comparing(
+            Plan::getScore, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    /** Result of a warm-start run, used for the summary dialog. */
+    record Result(File plansFile, File configFile, long persons, long plansWritten) { }
+
+    private PlansWarmStart() { }
+
+    /**
+     * Write the warm-start plans and config.
+     *
+     * @param configFile  the config of the new run
+     * @param outputPlans the {@code output_plans} file of the earlier run
+     * @param plansToKeep {@code 1} to keep only the selected plan, otherwise the number of best plans by score
+     * @return the written plans and config files plus counts
+     */
+    static Result create(File configFile, File outputPlans, int plansToKeep) throws IOException {
+        if (plansToKeep < 1) {
+            throw new IllegalArgumentException("At least one plan per person must be kept, but was " + plansToKeep);
+        }
+        if (!outputPlans.isFile()) {
+            throw new IOException("Plans file not found: " + outputPlans.getAbsolutePath());
+        }
+        Config config = ConfigUtils.loadConfig(configFile.getAbsolutePath());
+
+        String suffix = plansToKeep == 1 ? "-warmstart" : "-warmstart-top" + plansToKeep;
+        File outDir = configFile.getAbsoluteFile().getParentFile();
+        File warmStartPlans = new File(outDir, PopulationSampler.stripXmlExtension(configFile.getName()) + suffix + "-plans.xml.gz");
+        File warmStartConfig = new File(outDir, PopulationSampler.stripXmlExtension(configFile.getName()) + suffix + ".xml");
+
+        log.info("Creating warm-start plans from " + outputPlans + " into " + warmStartPlans);
+
+        long[] counts = new long[2];
+        PopulationSampler.streamPersons(outputPlans.toURI().toURL(), warmStartPlans, person -> {
+            keepPlans(person, plansToKeep);
+            counts[0]++;
+            counts[1] += person.getPlans().size();
+            return true;
+        });
+
+        config.plans().setInputFile(warmStartPlans.getName());
+        new ConfigWriter(config).write(warmStartConfig.getAbsolutePath());
+
+        log.info("Wrote " + counts[1] + " plans of " + counts[0] + " persons to " + warmStartPlans
+                + " and the matching config to " + warmStartConfig);
+        return new Result(warmStartPlans, warmStartConfig, counts[0], counts[1]);
+    }
+
+    /**
+     * Reduce the plans of a person to the selected plan ({@code plansToKeep == 1}) or to the
+     * best plans by score. The selected plan stays selected if it is among the kept plans,
+     * otherwise the best plan is selected.
+     */
+    static void keepPlans(Person person, int plansToKeep) {
+        Plan selected = person.getSelectedPlan();
+        List<Plan> keep;
+        if (plansToKeep == 1 && selected != null) {
+            keep = List.of(selected);
+        } else {
+            List<Plan> sorted = new ArrayList<>(person.getPlans());
+            sorted.sort(BY_SCORE_DESCENDING);
+            keep = sorted.subList(0, Math.min(plansToKeep, sorted.size()));
+        }
+        person.getPlans().removeIf(plan -> !keep.contains(plan));
+        if (!person.getPlans().isEmpty() && !keep.contains(selected)) {
+            person.setSelectedPlan(keep.get(0));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.ConfigWriter;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Pre-processing action that down-samples the plans file of a config to a small
+ * percentage (1%, 10%, 25%, …) for quick test runs.
+ *
+ * <p>The plans file is read and written in a single streaming pass, so memory use does
+ * not depend on the population size. Persons are selected by a hash of their id rather
+ * than by a random draw: the same person is always in or out for a given fraction, and
+ * smaller samples are subsets of larger ones (every 1% agent is also in the 10% sample).</p>
+ *
+ * <p>Next to the sampled plans a config variant is written which points to the new plans
+ * file, scales {@code qsim.flowCapacityFactor} and {@code qsim.storageCapacityFactor}
+ * by the same fraction and writes to its own output directory.</p>
+ *
+ * @author ikaddoura
+ */
+final class PopulationSampler {
+
+    private static final Logger log = LogManager.getLogger(PopulationSampler.class);
+
+    /** Resolution of the hash-based selection, i.e. fractions are exact to 1e-6. */
+    private static final int HASH_BUCKETS = 1_000_000;
+
+    /** Result of a sampling run, used for the summary dialog. */
+    record Result(File plansFile, File configFile, long personsRead, long personsWritten) { }
+
+    private PopulationSampler() { }
+
+    /**
+     * Sample the plans file referenced by the given config.
+     *
+     * @param configFile the config whose {@code plans.inputPlansFile} is sampled
+     * @param fraction   sample size in (0, 1], e.g. {@code 0.1} for a 10% sample
+     * @return the written plans and config files plus person counts
+     */
+    static Result sample(File configFile, double fraction) throws IOException {
+        if (fraction <= 0. || fraction > 1.) {
+            throw new IllegalArgumentException("Sample fraction must be in (0, 1], but was " + fraction);
+        }
+        Config config = ConfigUtils.loadConfig(configFile.getAbsolutePath());
+        String inputPlans = config.plans().getInputFile();
+        if (inputPlans == null || inputPlans.isBlank()) {
+            throw new IOException("The config does not reference a plans file (plans.inputPlansFile is empty).");
+        }
+        URL plansUrl = config.plans().getInputFileURL(config.getContext());
+
+        String suffix = "-" + percentLabel(fraction) + "pct";
+        File outDir = configFile.getAbsoluteFile().getParentFile();
+        File sampledPlans = new File(outDir, stripXmlExtension(new File(inputPlans).getName()) + suffix + ".xml.gz");
+        File sampledConfig = new File(outDir, stripXmlExtension(configFile.getName()) + suffix + ".xml");
+
+        log.info("Sampling " + percentLabel(fraction) + "% of " + plansUrl + " into " + sampledPlans);
+
+        long[] counts = new long[2];
+        streamPersons(plansUrl, sampledPlans, person -> {
+            counts[0]++;
+            if (!isSampled(person.getId(), fraction)) return false;
+            counts[1]++;
+            return true;
+        });
+
+        config.plans().setInputFile(sampledPlans.getName());
+        config.qsim().setFlowCapFactor(config.qsim().getFlowCapFactor() * fraction);
+        config.qsim().setStorageCapFactor(config.qsim().getStorageCapFactor() * fraction);
+        // Do not write into (or delete) the output of the full run.
+        config.controller().setOutputDirectory(suffixedOutputDirectory(config.controller().getOutputDirectory(), suffix));
+        new ConfigWriter(config).write(sampledConfig.getAbsolutePath());
+
+        log.info("Wrote " + counts[1] + " of " + counts[0] + " persons to " + sampledPlans
+                + " and the matching config to " + sampledConfig);
+        return new Result(sampledPlans, sampledConfig, counts[0], counts[1]);
+    }
+
+    /**
+     * Stream the persons of a plans file into a new plans file, keeping those for which
+     * {@code keep} returns true (it may also modify them). The attributes of the input
+     * population, such as its {@code coordinateReferenceSystem}, are written as well, so that
+     * the new file is read with the same coordinate system.
+     */
+    static void streamPersons(URL input, File output, Predicate<Person> keep) {
+        Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+        StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+        Population out = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+        PopulationWriter writer = new PopulationWriter(out);
+        boolean[] started = new boolean[1];
+        Runnable start = () -> {
+            // The <attributes> of the population precede the persons, so they have been read by now.
+            scenario.getPopulation().getAttributes().getAsMap().forEach(out.getAttributes()::putAttribute);
+            writer.writeStartPlans(output.getAbsolutePath());
+            started[0] = true;
+        };
+        reader.addAlgorithm(person -> {
+            if (!started[0]) start.run();
+            if (keep.test(person)) writer.writePerson(person);
+        });
+        try {
+            reader.readURL(input);
+        } finally {
+            if (started[0]) writer.writeEndPlans();
+        }
+        if (!started[0]) {
+            start.run();
+            writer.writeEndPlans();
+        }
+    }
+
+    /** The output directory with a suffix, e.g. {@code ./output-10pct} for {@code ./output/}. */
+    static String suffixedOutputDirectory(String outputDirectory, String suffix) {
+        String dir = outputDirectory == null || outputDirectory.isBlank() ? "./output" : outputDirectory;
+        while (dir.endsWith("/") && dir.length() > 1) dir = dir.substring(0, dir.length() - 1);
+        return dir + suffix;
+    }
+
+    /**
+     * Deterministic selection by person id. The id hash is mixed (murmur3 finalizer) so that
+     * sequential ids like "1", "2", "3" are spread evenly over the buckets.
+     */
+    static boolean isSampled(Id<Person> personId, double fraction) {
+        int h = personId.toString().hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, HASH_BUCKETS) < fraction * HASH_BUCKETS;
+    }
+
+    /** "1" for 0.01, "10" for 0.1, "2.5" for 0.025. */
+    static String percentLabel(double fraction) {
+        double pct = fraction * 100.;
+        return pct == Math.rint(pct) ? Long.toString(Math.round(pct)) : Double.toString(pct);
+    }
+
+    /** Strip the usual MATSim input file extensions, e.g. {@code plans.xml.gz} becomes {@code plans}. */
+    static String stripXmlExtension(String fileName) {
+        for (String ext : new String[] { ".xml.gz", ".xml.zst", ".xml.lz4", ".xml.bz2", ".xml" }) {
+            if (fileName.endsWith(ext)) return fileName.substring(0, fileName.length() - ext.length());
+        }
+        return fileName;
+    }
+}
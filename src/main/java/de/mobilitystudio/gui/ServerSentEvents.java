@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Minimal reader for server-sent events ({@code text/event-stream}), as returned by the
+ * streaming endpoints of OpenAI-compatible servers, Anthropic and Gemini.
+ *
+ * <p>The response body is consumed line by line while it arrives, so the first tokens of a
+ * completion can be shown long before the model has finished. All three providers send one
+ * JSON object per event in the {@code data:} field; {@code event:} lines and {@code :}
+ * keep-alive comments are not needed and skipped. OpenAI-compatible servers end the stream
+ * with {@code data: [DONE]}, the others just close it.</p>
+ *
+ * @author ikaddoura
+ */
+final class ServerSentEvents {
+
+    private static final ObjectMapper M = new ObjectMapper();
+
+    /** Handles the parsed JSON data of one event; runs on the calling (worker) thread. */
+    interface EventHandler {
+        void onEvent(JsonNode event) throws IOException;
+    }
+
+    /** Extracts the text of one event, or returns an empty string; may throw for error events. */
+    interface TextExtractor {
+        String text(JsonNode event) throws IOException;
+    }
+
+    private ServerSentEvents() { }
+
+    /**
+     * Sends the request; returns as soon as the response headers are there.
+     */
+    static HttpResponse<Stream<String>> send(HttpClient http, HttpRequest req)
+            throws IOException, InterruptedException {
+        return http.send(req, HttpResponse.BodyHandlers.ofLines());
+    }
+
+    /**
+     * Reads the complete body, e.g. of an error response (which is plain JSON, not a stream).
+     */
+    static String body(HttpResponse<Stream<String>> resp) {
+        try (Stream<String> lines = resp.body()) {
+            return lines.collect(Collectors.joining("\n"));
+        } catch (UncheckedIOException e) {
+            return "(could not read response: " + e.getCause().getMessage() + ")";
+        }
+    }
+
+    /**
+     * Calls the handler for every event until the stream ends. Closing the stream on return
+     * (or on cancellation) also aborts the HTTP exchange.
+     */
+    static void forEachEvent(HttpResponse<Stream<String>> resp, EventHandler handler)
+            throws IOException, InterruptedException {
+        StringBuilder data = new StringBuilder();
+        try (Stream<String> lines = resp.body()) {
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext()) {
+                String line = it.next();
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Cancelled by user.");
+                }
+                if (line.isEmpty()) {
+                    if (!dispatch(data, handler)) return;
+                } else if (line.startsWith("data:")) {
+                    // Multi-line data is joined with newlines, as per the SSE spec.
+                    if (data.length() > 0) data.append('\n');
+                    data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+                }
+            }
+            dispatch(data, handler);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Collects the text of all events, passing every non-empty piece to {@code onToken} as it
+     * arrives.
+     *
+     * @return the complete text
+     */
+    static String readText(HttpResponse<Stream<String>> resp, TextExtractor extractor,
+                           Consumer<String> onToken) throws IOException, InterruptedException {
+        StringBuilder text = new StringBuilder();
+        forEachEvent(resp, event -> {
+            String token = extractor.text(event);
+            if (token != null && !token.isEmpty()) {
+                text.append(token);
+                onToken.accept(token);
+            }
+        });
+        return text.toString();
+    }
+
+    /** Dispatches the pending event, if any; returns false at the end-of-stream marker. */
+    private static boolean dispatch(StringBuilder data, EventHandler handler) throws IOException {
+        if (data.length() == 0) return true;
+        String payload = data.toString();
+        data.setLength(0);
+        if (payload.equals("[DONE]")) return false;
+        handler.onEvent(M.readTree(payload));
+        return true;
+    }
+}
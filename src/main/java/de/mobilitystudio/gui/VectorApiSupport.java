@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** */
+
+package de.mobilitystudio.gui;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.module.ModuleFinder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Makes sure the embedded (JLama) Copilot provider runs with the incubator Vector API.
+ *
+ * <p>JLama only uses SIMD matrix kernels if the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}; otherwise it silently falls back to scalar
+ * arithmetic, which is several times slower. A module cannot be added from the JAR manifest,
+ * so a GUI started with a plain {@code java -jar} (or a double click) relaunches itself once
+ * with the required flags, keeping the JVM options, class path and arguments of the first
+ * launch. The first JVM waits for the second one and exits with its exit code.</p>
+ *
+ * <p>No relaunch happens if the module is already there, if the Java runtime does not ship
+ * it (e.g. a trimmed jlink image), if JLama is not on the class path, if a debugger is
+ * attached, or if {@code -Dmatsim.copilot.relaunch=false} is given.</p>
+ *
+ * @author ikaddoura
+ */
+final class VectorApiSupport {
+
+    private static final Logger log = LogManager.getLogger(VectorApiSupport.class);
+
+    static final String MODULE = "jdk.incubator.vector";
+    /** Set on the relaunched JVM, so it never relaunches again. */
+    private static final String RELAUNCHED_PROPERTY = "matsim.copilot.relaunched";
+    /** {@code -Dmatsim.copilot.relaunch=false} disables the relaunch. */
+    private static final String RELAUNCH_PROPERTY = "matsim.copilot.relaunch";
+
+    private VectorApiSupport() { }
+
+    /** True if the Vector API module is loaded in this JVM. */
+    static boolean isEnabled() {
+        return ModuleLayer.boot().findModule(MODULE).isPresent();
+    }
+
+    /** True if the Java runtime ships the Vector API module (whether loaded or not). */
+    static boolean isInstalled() {
+        return ModuleFinder.ofSystem().find(MODULE).isPresent();
+    }
+
+    /** A one-line description for the Copilot settings. */
+    static String describe() {
+        if (isEnabled()) return "Vector API: enabled (SIMD)";
+        if (!isInstalled()) return "Vector API: not available in this Java runtime (scalar, slow)";
+        return "Vector API: disabled - start with --add-modules " + MODULE + " (scalar, slow)";
+    }
+
+    /**
+     * Relaunches the GUI with the Vector API if that is needed and possible. Returns only if no
+     * relaunch happened; otherwise it exits with the exit code of the relaunched GUI.
+     */
+    static void relaunchIfNeeded(Class<?> mainClass, String[] args) {
+        if (isEnabled() || !isInstalled() || !JlamaService.isAvailable()
+                || Boolean.getBoolean(RELAUNCHED_PROPERTY)
+                || "false".equalsIgnoreCase(System.getProperty(RELAUNCH_PROPERTY))) {
+            return;
+        }
+        List<String> jvmArgs = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        if (jvmArgs.stream().anyMatch(a -> a.startsWith("-agentlib:jdwp") || a.startsWith("-Xrunjdwp"))) {
+            return; // A debugger is attached to this JVM; the relaunched one could not bind its port.
+        }
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java"));
+        command.addAll(jvmArgs);
+        command.add("--add-modules=" + MODULE);
+        command.add("--enable-native-access=ALL-UNNAMED");
+        command.add("-D" + RELAUNCHED_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(List.of(args));
+
+        Process process;
+        try {
+            log.info("Relaunching with the Vector API for the embedded Copilot model: " + command);
+            process = new ProcessBuilder(command).inheritIO().start();
+        } catch (Exception e) {
+            log.warn("Could not relaunch with --add-modules " + MODULE + "; continuing without it.", e);
+            return;
+        }
+        try {
+            System.exit(process.waitFor());
+        } catch (InterruptedException e) {
+            process.destroy();
+            System.exit(1);
+        }
+    }
+}
@@ -37,6 +37,8 @@ public final class RunDRT {
 			config = ConfigUtils.loadConfig( args , new MultiModeDrtConfigGroup(), new DvrpConfigGroup());
 		}
 				
+		// The pt router is chosen with transit.routingAlgorithmType; core MATSim installs the
+		// SwissRailRaptor for it. Its data is built once per run and not cached across runs.
 		Controler controler = DrtControlerCreator.createControler(config, false);
 		controler.run();
 	}
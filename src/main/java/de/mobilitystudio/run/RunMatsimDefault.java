@@ -36,6 +36,8 @@ public class RunMatsimDefault{
 		}
 		
 		Scenario scenario = ScenarioUtils.loadScenario(config) ;
+		// The pt router is chosen with transit.routingAlgorithmType; core MATSim installs the
+		// SwissRailRaptor for it. Its data is built once per run and not cached across runs.
 		Controler controler = new Controler( scenario ) ;
 		controler.run();
 	}
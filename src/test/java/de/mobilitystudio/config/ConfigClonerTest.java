@@ -0,0 +1,100 @@
+package de.mobilitystudio.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigReader;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.ConfigWriter;
+import org.matsim.core.config.groups.ReplanningConfigGroup;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+
+
+class ConfigClonerTest {
+
+    /**
+     * A config with changed typed modules, additional scoring and replanning parameter sets and
+     * a module that MATSim does not know.
+     */
+    private static Config createConfig() {
+        Config config = ConfigUtils.createConfig();
+        config.controller().setLastIteration(42);
+        config.global().setRandomSeed(4711);
+
+        ScoringConfigGroup.ActivityParams work = new ScoringConfigGroup.ActivityParams("work");
+        work.setTypicalDuration(8 * 3600.);
+        work.setOpeningTime(6 * 3600.);
+        config.scoring().addActivityParams(work);
+        ScoringConfigGroup.ScoringParameterSet freight = config.scoring().getOrCreateScoringParameters("freight");
+        freight.setPerforming_utils_hr(3.5);
+        freight.getOrCreateModeParams("truck").setMarginalUtilityOfTraveling(-2.);
+
+        ReplanningConfigGroup.StrategySettings reroute = new ReplanningConfigGroup.StrategySettings();
+        reroute.setStrategyName("ReRoute");
+        reroute.setWeight(0.1);
+        reroute.setSubpopulation("freight");
+        config.replanning().addStrategySettings(reroute);
+
+        ConfigGroup generic = new ConfigGroup("customModule");
+        generic.addParam("alpha", "1.5");
+        ConfigGroup genericSet = new ConfigGroup("customSet");
+        genericSet.addParam("beta", "x");
+        generic.addParameterSet(genericSet);
+        config.addModule(generic);
+        return config;
+    }
+
+    private static String toXml(Config config) {
+        StringWriter xml = new StringWriter();
+        new ConfigWriter(config).writeStream(xml);
+        return xml.toString();
+    }
+
+    /**
+     * The clone the editor used before ConfigCloner: write the config and read it back. The
+     * reader fills a config with the core modules, so that both copies have typed modules and
+     * write the same comments.
+     */
+    private static Config roundTrip(Config config) {
+        Config copy = ConfigUtils.createConfig();
+        new ConfigReader(copy).parse(new ByteArrayInputStream(toXml(config).getBytes(StandardCharsets.UTF_8)));
+        return copy;
+    }
+
+    @Test
+    void copyWritesTheSameXmlAsTheRoundTrip() {
+        Config original = createConfig();
+        assertEquals(toXml(roundTrip(original)), toXml(ConfigCloner.copy(original)));
+    }
+
+    @Test
+    void copyKeepsTheModuleClasses() {
+        Config original = createConfig();
+        Config copy = ConfigCloner.copy(original);
+        for (String name : original.getModules().keySet()) {
+            assertSame(original.getModules().get(name).getClass(), copy.getModules().get(name).getClass(), name);
+        }
+        assertEquals(3.5, copy.scoring().getScoringParameters("freight").getPerforming_utils_hr());
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        Config original = createConfig();
+        String before = toXml(original);
+        Config copy = ConfigCloner.copy(original);
+        assertNotSame(original.scoring(), copy.scoring());
+
+        copy.controller().setLastIteration(1);
+        copy.scoring().getActivityParams("work").setTypicalDuration(3600.);
+        copy.getModules().get("customModule").addParam("alpha", "2");
+        assertEquals(before, toXml(original));
+    }
+}